@@ -1,13 +1,25 @@
 package com.example.shortener;
 
+import com.example.shortener.cli.ImportCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 @EnableScheduling
 public class ShortenerApplication {
   public static void main(String[] args) {
+    if (Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + ImportCommand.FILE_PROPERTY + "="))) {
+      // CLI import mode: run the import and exit
+      ConfigurableApplicationContext context = new SpringApplicationBuilder(ShortenerApplication.class)
+              .properties(ImportCommand.CLI_DEFAULTS)
+              .run(args);
+      System.exit(SpringApplication.exit(context));
+    }
     SpringApplication.run(ShortenerApplication.class, args);
   }
 }
@@ -0,0 +1,119 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.properties.AppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the redirect cache on startup so a freshly deployed node (or a flushed
+ * Redis) does not repopulate {@code url:*} one miss at a time.
+ *
+ * The top-N active URLs by click count are streamed from Postgres and pipelined
+ * into Redis in batches; the hottest of them also go into the local cache.
+ * Exposed as the {@code cacheWarmup} health indicator, which is OUT_OF_SERVICE
+ * (and keeps the readiness group down) until the warm-up has finished.
+ */
+@Slf4j
+@Component("cacheWarmup")
+@RequiredArgsConstructor
+public class CacheWarmer implements HealthIndicator {
+
+    private static final String TOP_URLS_SQL = """
+            SELECT short_key, original_url, expires_at
+            FROM urls
+            WHERE deleted_at IS NULL
+              AND is_active = true
+              AND (expires_at IS NULL OR expires_at > ?)
+            ORDER BY click_count DESC
+            LIMIT ?
+            """;
+
+    private final AppProperties appProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final RedisRedirectCache redisRedirectCache;
+    private final LocalUrlCache localUrlCache;
+
+    private volatile Health health = Health.outOfService().withDetail("warmup", "pending").build();
+
+    @Override
+    public Health health() {
+        return health;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        AppProperties.Warmup props = appProperties.getWarmup();
+        if (!props.isEnabled()) {
+            health = Health.up().withDetail("warmup", "disabled").build();
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        AtomicInteger loaded = new AtomicInteger();
+        Map<String, RedirectEntry> batch = new LinkedHashMap<>();
+
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(TOP_URLS_SQL);
+                // Columns are UTC wall-clock timestamps, matching hibernate.jdbc.time_zone
+                ps.setObject(1, LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC));
+                ps.setInt(2, props.getTopN());
+                ps.setFetchSize(props.getBatchSize());
+                return ps;
+            }, rs -> {
+                String shortKey = rs.getString("short_key");
+                LocalDateTime expiresAt = rs.getObject("expires_at", LocalDateTime.class);
+                RedirectEntry entry = new RedirectEntry(
+                        rs.getString("original_url"),
+                        expiresAt == null ? null : expiresAt.toInstant(ZoneOffset.UTC),
+                        true);
+
+                if (loaded.incrementAndGet() <= props.getLocalTopN()) {
+                    localUrlCache.put(shortKey, entry);
+                }
+                batch.put(shortKey, entry);
+                if (batch.size() >= props.getBatchSize()) {
+                    redisRedirectCache.putAll(batch);
+                    batch.clear();
+                }
+            }));
+            redisRedirectCache.putAll(batch);
+
+            long duration = System.currentTimeMillis() - started;
+            health = Health.up()
+                    .withDetail("warmup", "completed")
+                    .withDetail("entries", loaded.get())
+                    .withDetail("durationMs", duration)
+                    .build();
+            log.info("✅ Cache warm-up loaded {} entries in {} ms", loaded.get(), duration);
+        } catch (Exception e) {
+            // A failed warm-up only means a colder start; don't keep the node out of rotation
+            health = Health.up()
+                    .withDetail("warmup", "failed")
+                    .withDetail("entries", loaded.get())
+                    .withDetail("error", e.getMessage())
+                    .build();
+            log.error("❌ Cache warm-up failed after {} entries: {}", loaded.get(), e.getMessage(), e);
+        }
+    }
+}
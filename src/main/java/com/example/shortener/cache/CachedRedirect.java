@@ -0,0 +1,18 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.model.RedirectEntry;
+
+/**
+ * A redirect entry as stored in Redis, with the metadata needed for
+ * stale-while-revalidate.
+ *
+ * @param entry         the cached redirect entry
+ * @param softExpiresAt epoch millis after which the entry is served stale and refreshed in the background
+ * @param loadMillis    how long the database load that produced the entry took
+ */
+public record CachedRedirect(RedirectEntry entry, long softExpiresAt, int loadMillis) {
+
+    public boolean isStale(long nowMillis) {
+        return nowMillis >= softExpiresAt;
+    }
+}
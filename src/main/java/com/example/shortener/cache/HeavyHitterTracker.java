@@ -0,0 +1,121 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.service.UrlService;
+import com.example.shortener.util.CountMinSketch;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming heavy-hitter detection for redirected short keys.
+ *
+ * Every successful redirect increments a Count-Min sketch; keys whose estimate
+ * beats the current top-K cut-off become candidates. On each decay tick the
+ * sketch is halved, the candidates are trimmed back to the top K, and keys above
+ * the pin threshold are pinned in the local cache (no TTL) until their decayed
+ * count falls below half the threshold.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HeavyHitterTracker {
+
+    private static final int CANDIDATE_HEADROOM = 4;
+
+    private final AppProperties appProperties;
+    private final LocalUrlCache localUrlCache;
+    private final UrlService urlService;
+
+    private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+    private CountMinSketch sketch;
+    private volatile long admissionThreshold;
+    private volatile List<HotKey> topKeys = List.of();
+
+    /**
+     * A tracked key with its decayed hit estimate.
+     */
+    public record HotKey(String key, long estimate, boolean pinned) {
+    }
+
+    @PostConstruct
+    public void init() {
+        AppProperties.HeavyHitters props = appProperties.getHeavyHitters();
+        sketch = new CountMinSketch(props.getSketchDepth(), props.getSketchWidth());
+    }
+
+    /**
+     * Records a redirect for the key. Lock-free; called on the request path.
+     */
+    public void record(String shortKey) {
+        AppProperties.HeavyHitters props = appProperties.getHeavyHitters();
+        if (!props.isEnabled()) {
+            return;
+        }
+        long estimate = sketch.increment(shortKey);
+        if (estimate > admissionThreshold
+                && !candidates.contains(shortKey)
+                && candidates.size() < props.getTopK() * CANDIDATE_HEADROOM) {
+            candidates.add(shortKey);
+        }
+    }
+
+    public List<HotKey> topKeys() {
+        return topKeys;
+    }
+
+    @Scheduled(fixedRateString = "${app.heavy-hitters.decay-interval-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    public void decay() {
+        AppProperties.HeavyHitters props = appProperties.getHeavyHitters();
+        if (!props.isEnabled()) {
+            return;
+        }
+
+        List<HotKey> ranked = candidates.stream()
+                .map(key -> new HotKey(key, sketch.estimate(key), localUrlCache.isPinned(key)))
+                .sorted(Comparator.comparingLong(HotKey::estimate).reversed())
+                .toList();
+
+        List<HotKey> top = ranked.subList(0, Math.min(props.getTopK(), ranked.size()));
+        ranked.subList(top.size(), ranked.size()).forEach(h -> candidates.remove(h.key()));
+        admissionThreshold = top.size() < props.getTopK() ? 0 : top.get(top.size() - 1).estimate() / 2;
+
+        updatePins(top, props.getPinThreshold());
+        topKeys = top.stream()
+                .map(h -> new HotKey(h.key(), h.estimate(), localUrlCache.isPinned(h.key())))
+                .toList();
+
+        sketch.halve();
+    }
+
+    private void updatePins(List<HotKey> top, long pinThreshold) {
+        Set<String> stillHot = new HashSet<>();
+        for (HotKey hot : top) {
+            if (hot.estimate() >= pinThreshold / 2) {
+                stillHot.add(hot.key());
+            }
+            if (hot.estimate() >= pinThreshold && !hot.pinned()) {
+                urlService.getByShortKey(hot.key()).ifPresent(entry -> {
+                    localUrlCache.pin(hot.key(), entry);
+                    log.info("📌 Pinned hot key '{}' (~{} hits)", hot.key(), hot.estimate());
+                });
+            }
+        }
+
+        for (String key : localUrlCache.pinnedKeys()) {
+            if (!stillHot.contains(key)) {
+                localUrlCache.unpin(key);
+                log.info("Unpinned cooled-off key '{}'", key);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.shortener.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint ({@code /actuator/hotkeys}) listing the current heavy hitters on this node.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeysEndpoint {
+
+    private final HeavyHitterTracker heavyHitterTracker;
+
+    @ReadOperation
+    public List<HeavyHitterTracker.HotKey> hotKeys() {
+        return heavyHitterTracker.topKeys();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.properties.AppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-shot migration of legacy JSON {@code url:*} cache entries into the compact
+ * binary format, keeping each key's remaining TTL (or lack of one). Runs on
+ * startup; entries already in the compact format are skipped, so it is safe to
+ * run on every node. Needs Redis 6 or later for {@code SET ... KEEPTTL}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LegacyRedirectCacheMigrator {
+
+    private static final String URL_CACHE_PATTERN = "url:*";
+    private static final int SCAN_COUNT = 1000;
+
+    private final RedisTemplate<String, CachedRedirect> redirectCacheTemplate;
+    private final AppProperties appProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!appProperties.isMigrateLegacyCacheEntries()) {
+            return;
+        }
+        try {
+            long migrated = redirectCacheTemplate.execute((RedisCallback<Long>) this::migrateAll);
+            if (migrated > 0) {
+                log.info("✅ Migrated {} legacy url:* cache entries to the compact format", migrated);
+            }
+        } catch (Exception e) {
+            log.warn("Legacy cache migration aborted: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long migrateAll(RedisConnection connection) {
+        RedisSerializer<CachedRedirect> serializer =
+                (RedisSerializer<CachedRedirect>) redirectCacheTemplate.getValueSerializer();
+        ScanOptions options = ScanOptions.scanOptions().match(URL_CACHE_PATTERN).count(SCAN_COUNT).build();
+        long migrated = 0;
+
+        try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+            while (cursor.hasNext()) {
+                byte[] key = cursor.next();
+                byte[] value = connection.stringCommands().get(key);
+                if (value == null || RedirectEntryCodec.isCompact(value)) {
+                    continue;
+                }
+
+                CachedRedirect entry = serializer.deserialize(value);
+                if (entry == null) {
+                    continue;
+                }
+
+                // KEEPTTL keeps the remaining TTL, or none; XX never resurrects a key
+                // that expired or was deleted meanwhile
+                Boolean written = connection.stringCommands().set(key, RedirectEntryCodec.encode(entry),
+                        Expiration.keepTtl(), SetOption.SET_IF_PRESENT);
+                if (Boolean.TRUE.equals(written)) {
+                    migrated++;
+                }
+            }
+        }
+        return migrated;
+    }
+}
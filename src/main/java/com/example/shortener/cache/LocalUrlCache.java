@@ -0,0 +1,175 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.cache.metrics.CacheMetrics;
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.properties.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process (L1) near-cache of redirect entries, consulted before Redis.
+ *
+ * Entries are bounded by size and expire after write, or when the link itself
+ * expires if that comes first. Heavy hitters can also be
+ * pinned, which keeps them in memory with no TTL until they are unpinned.
+ * Invalidations are broadcast over a Redis pub/sub channel so every node drops
+ * its copy, pinned or not.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalUrlCache implements MessageListener {
+
+    private final AppProperties appProperties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final CacheMetrics cacheMetrics;
+
+    // Short keys never contain a newline, so one message can carry many
+    private static final String KEY_SEPARATOR = "\n";
+
+    private final Map<String, RedirectEntry> pinned = new ConcurrentHashMap<>();
+    private Cache<String, RedirectEntry> cache;
+
+    @PostConstruct
+    public void init() {
+        AppProperties.LocalCache props = appProperties.getLocalCache();
+        cache = Caffeine.newBuilder()
+                .maximumSize(props.getMaximumSize())
+                .expireAfter(new EntryExpiry(Duration.ofSeconds(props.getTtlSeconds())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(cacheMetrics.getRegistry(), cache, "url.local");
+        Gauge.builder("url.local.pinned", pinned, Map::size)
+                .description("Heavy-hitter entries pinned in memory")
+                .register(cacheMetrics.getRegistry());
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(props.getInvalidationChannel()));
+        log.info("Local URL cache enabled={} (max {} entries, TTL {}s)",
+                props.isEnabled(), props.getMaximumSize(), props.getTtlSeconds());
+    }
+
+    /**
+     * Looks up a short key in the local tier only.
+     */
+    public Optional<RedirectEntry> get(String shortKey) {
+        if (!appProperties.getLocalCache().isEnabled()) {
+            return Optional.empty();
+        }
+        RedirectEntry entry = pinned.get(shortKey);
+        if (entry == null) {
+            entry = cache.getIfPresent(shortKey);
+        }
+        cacheMetrics.recordLocal(entry != null);
+        return Optional.ofNullable(entry);
+    }
+
+    public void put(String shortKey, RedirectEntry entry) {
+        if (appProperties.getLocalCache().isEnabled()) {
+            cache.put(shortKey, entry);
+        }
+    }
+
+    /**
+     * Keeps the entry in memory, exempt from size and TTL eviction, until unpinned.
+     */
+    public void pin(String shortKey, RedirectEntry entry) {
+        pinned.put(shortKey, entry);
+    }
+
+    public void unpin(String shortKey) {
+        pinned.remove(shortKey);
+    }
+
+    public boolean isPinned(String shortKey) {
+        return pinned.containsKey(shortKey);
+    }
+
+    public Set<String> pinnedKeys() {
+        return Set.copyOf(pinned.keySet());
+    }
+
+    /**
+     * Drops the key locally and tells the other nodes to do the same.
+     */
+    public void invalidate(String shortKey) {
+        evictLocal(shortKey);
+        try {
+            stringRedisTemplate.convertAndSend(appProperties.getLocalCache().getInvalidationChannel(), shortKey);
+        } catch (Exception e) {
+            log.warn("Failed to broadcast invalidation for key '{}': {}", shortKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops many keys locally and broadcasts them in a single message.
+     */
+    public void invalidateAll(Collection<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return;
+        }
+        shortKeys.forEach(this::evictLocal);
+        try {
+            stringRedisTemplate.convertAndSend(appProperties.getLocalCache().getInvalidationChannel(),
+                    String.join(KEY_SEPARATOR, shortKeys));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast invalidation for {} keys: {}", shortKeys.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String shortKey : body.split(KEY_SEPARATOR)) {
+            evictLocal(shortKey);
+        }
+        log.debug("🗑️ Local cache entries '{}' invalidated by broadcast", body);
+    }
+
+    private void evictLocal(String shortKey) {
+        pinned.remove(shortKey);
+        cache.invalidate(shortKey);
+    }
+
+    /**
+     * Expires entries after the configured TTL, or at the link's expiry if sooner.
+     */
+    private record EntryExpiry(Duration ttl) implements Expiry<String, RedirectEntry> {
+
+        @Override
+        public long expireAfterCreate(String key, RedirectEntry value, long currentTime) {
+            return value.cacheTtl(ttl, Instant.now()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, RedirectEntry value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, RedirectEntry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.model.RedirectEntry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of cached redirect entries.
+ *
+ * Layout (version 2, written):
+ * <pre>
+ * [magic:1][version:1][flags:1][softExpiresAt epoch millis:8][loadMillis:4]
+ * [expiresAt epoch millis:8, only if FLAG_EXPIRES][target URL UTF-8 bytes...]
+ * </pre>
+ * Version 1 (read only) has no soft expiry or load time; such entries decode as
+ * already stale so they are refreshed, and rewritten as version 2, on first read.
+ * The leading magic byte can never start a JSON document, which lets readers
+ * tell compact values apart from legacy Jackson entries.
+ */
+public final class RedirectEntryCodec {
+
+    public static final byte MAGIC = (byte) 0xA5;
+    public static final byte VERSION_1 = 1;
+    public static final byte VERSION_2 = 2;
+
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_EXPIRES = 1 << 1;
+    private static final int HEADER_SIZE = 3;
+    private static final int V2_METADATA_SIZE = Long.BYTES + Integer.BYTES;
+
+    private RedirectEntryCodec() {}
+
+    public static byte[] encode(CachedRedirect cached) {
+        RedirectEntry entry = cached.entry();
+        byte[] target = entry.targetUrl().getBytes(StandardCharsets.UTF_8);
+        boolean expires = entry.expiresAt() != null;
+
+        int flags = (entry.active() ? FLAG_ACTIVE : 0) | (expires ? FLAG_EXPIRES : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(
+                HEADER_SIZE + V2_METADATA_SIZE + (expires ? Long.BYTES : 0) + target.length);
+        buffer.put(MAGIC).put(VERSION_2).put((byte) flags);
+        buffer.putLong(cached.softExpiresAt()).putInt(cached.loadMillis());
+        if (expires) {
+            buffer.putLong(entry.expiresAt().toEpochMilli());
+        }
+        buffer.put(target);
+        return buffer.array();
+    }
+
+    public static boolean isCompact(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_SIZE && bytes[0] == MAGIC;
+    }
+
+    public static CachedRedirect decode(byte[] bytes) {
+        if (!isCompact(bytes)) {
+            throw new IllegalArgumentException("Not a compact redirect entry");
+        }
+        byte version = bytes[1];
+        if (version != VERSION_1 && version != VERSION_2) {
+            throw new IllegalArgumentException("Unsupported redirect entry version " + version);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+        int flags = bytes[2];
+        long softExpiresAt = 0;
+        int loadMillis = 0;
+        if (version == VERSION_2) {
+            softExpiresAt = buffer.getLong();
+            loadMillis = buffer.getInt();
+        }
+        Instant expiresAt = (flags & FLAG_EXPIRES) != 0 ? Instant.ofEpochMilli(buffer.getLong()) : null;
+        String target = new String(bytes, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+
+        RedirectEntry entry = new RedirectEntry(target, expiresAt, (flags & FLAG_ACTIVE) != 0);
+        return new CachedRedirect(entry, softExpiresAt, loadMillis);
+    }
+}
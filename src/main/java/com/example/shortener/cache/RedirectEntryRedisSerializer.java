@@ -0,0 +1,45 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.entity.Url;
+import com.example.shortener.model.RedirectEntry;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis serializer writing {@link CachedRedirect} values in the compact binary format.
+ *
+ * Reads fall back to the legacy JSON serializer so {@code url:*} entries written
+ * before the format change are still served (as stale) until they are rewritten.
+ */
+public class RedirectEntryRedisSerializer implements RedisSerializer<CachedRedirect> {
+
+    private final GenericJackson2JsonRedisSerializer legacySerializer;
+
+    public RedirectEntryRedisSerializer(GenericJackson2JsonRedisSerializer legacySerializer) {
+        this.legacySerializer = legacySerializer;
+    }
+
+    @Override
+    public byte[] serialize(CachedRedirect cached) throws SerializationException {
+        return cached == null ? null : RedirectEntryCodec.encode(cached);
+    }
+
+    @Override
+    public CachedRedirect deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (RedirectEntryCodec.isCompact(bytes)) {
+            try {
+                return RedirectEntryCodec.decode(bytes);
+            } catch (IllegalArgumentException e) {
+                throw new SerializationException("Cannot decode redirect entry", e);
+            }
+        }
+
+        // Legacy entries were written without type hints, so bind them to Url explicitly
+        Url legacy = legacySerializer.deserialize(bytes, Url.class);
+        return legacy == null ? null : new CachedRedirect(RedirectEntry.from(legacy), 0, 0);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.cache.metrics.CacheMetrics;
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.properties.AppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Redis tier of the redirect cache ({@code url:*} keys).
+ *
+ * Entries live for {@code app.cache-ttl-seconds}, or until the link's own
+ * {@code expiresAt} if that comes first (the hard TTL), but carry a jittered
+ * soft expiry. Past the soft expiry, or earlier with a probability that
+ * grows as it approaches (XFetch), readers should serve the entry and refresh it
+ * in the background so hot keys never fall through to the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisRedirectCache {
+
+    public static final String URL_CACHE_PREFIX = "url:";
+
+    private final RedisTemplate<String, CachedRedirect> redirectCacheTemplate;
+    private final AppProperties appProperties;
+    private final CacheMetrics cacheMetrics;
+
+    public Optional<CachedRedirect> get(String shortKey) {
+        try {
+            CachedRedirect cached = redirectCacheTemplate.opsForValue().get(URL_CACHE_PREFIX + shortKey);
+            cacheMetrics.recordRedis(cached != null);
+            return Optional.ofNullable(cached);
+        } catch (Exception e) {
+            log.warn("Cache read error for key '{}': {}", shortKey, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param loadMillis how long it took to load the entry from the database
+     */
+    public void put(String shortKey, RedirectEntry entry, int loadMillis) {
+        Duration ttl = ttl(entry);
+        try {
+            redirectCacheTemplate.opsForValue().set(
+                    URL_CACHE_PREFIX + shortKey,
+                    wrap(entry, loadMillis, ttl),
+                    ttl
+            );
+            log.debug("🧠 Cached key '{}' for {}s", shortKey, ttl.getSeconds());
+        } catch (Exception e) {
+            log.warn("Failed to cache key '{}': {}", shortKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes many entries in a single pipelined round trip.
+     */
+    public void putAll(Map<String, RedirectEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        redirectCacheTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            entries.forEach((shortKey, entry) -> {
+                Duration ttl = ttl(entry);
+                connection.stringCommands().set(
+                        (URL_CACHE_PREFIX + shortKey).getBytes(StandardCharsets.UTF_8),
+                        RedirectEntryCodec.encode(wrap(entry, 0, ttl)),
+                        Expiration.from(ttl),
+                        SetOption.UPSERT);
+            });
+            return null;
+        });
+    }
+
+    public boolean delete(String shortKey) {
+        return Boolean.TRUE.equals(redirectCacheTemplate.delete(URL_CACHE_PREFIX + shortKey));
+    }
+
+    /**
+     * Deletes many entries with a single DEL.
+     *
+     * @return number of entries that were cached
+     */
+    public long deleteAll(Collection<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return 0;
+        }
+        Long deleted = redirectCacheTemplate.delete(shortKeys.stream().map(k -> URL_CACHE_PREFIX + k).toList());
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * Decides whether a cache hit should trigger a background refresh.
+     * Always true past the soft expiry; before it, XFetch refreshes early with a
+     * probability weighted by the entry's load time and {@code beta}.
+     */
+    public boolean shouldRefresh(CachedRedirect cached, long nowMillis) {
+        AppProperties.StaleWhileRevalidate props = appProperties.getStaleWhileRevalidate();
+        if (!props.isEnabled()) {
+            return false;
+        }
+        if (cached.isStale(nowMillis)) {
+            return true;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble(); // (0, 1]
+        double earlyMillis = -cached.loadMillis() * props.getBeta() * Math.log(random);
+        return nowMillis + earlyMillis >= cached.softExpiresAt();
+    }
+
+    private Duration ttl(RedirectEntry entry) {
+        return entry.cacheTtl(Duration.ofSeconds(appProperties.getCacheTtlSeconds()), Instant.now());
+    }
+
+    CachedRedirect wrap(RedirectEntry entry, int loadMillis, Duration ttl) {
+        AppProperties.StaleWhileRevalidate props = appProperties.getStaleWhileRevalidate();
+        double softTtlMillis = ttl.toMillis() * props.getSoftTtlRatio();
+        // Spread soft expiries so keys cached together don't all refresh together
+        double jitter = 1.0 - props.getJitterRatio() * ThreadLocalRandom.current().nextDouble();
+        long softExpiresAt = System.currentTimeMillis() + (long) (softTtlMillis * jitter);
+        return new CachedRedirect(entry, softExpiresAt, loadMillis);
+    }
+}
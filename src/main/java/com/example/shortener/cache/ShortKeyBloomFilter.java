@@ -0,0 +1,208 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Probabilistic membership filter of all issued short keys.
+ *
+ * A negative answer means the key was never issued, so the redirect path can
+ * answer 404 without touching Redis or Postgres. The filter is built from the
+ * database at startup, fed on every create (locally and via pub/sub for the
+ * other nodes) and rebuilt periodically to forget deleted keys. Until the
+ * first build completes every key is reported as possibly present.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortKeyBloomFilter implements MessageListener {
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final String KEYS_SQL = "SELECT short_key FROM urls WHERE deleted_at IS NULL";
+
+    private final AppProperties appProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Held while swapping filters and while adding a key, so no key lands only in the outgoing filter
+    private final ReentrantLock swapLock = new ReentrantLock();
+    private final AtomicLong lastBuildCount = new AtomicLong();
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(appProperties.getBloomFilter().getChannel()));
+
+        rejectedCounter = Counter.builder("url.bloom.rejected")
+                .description("Lookups answered as not-found by the short key filter")
+                .register(meterRegistry);
+        Gauge.builder("url.bloom.keys", lastBuildCount, AtomicLong::get)
+                .description("Short keys loaded by the last filter build")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${app.bloom-filter.rebuild-cron:0 30 4 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the filter from the database and swaps it in atomically.
+     * Keys added while the rebuild is running are written to both filters;
+     * the swap and those writes share a lock, so a key added during the swap
+     * still reaches the new filter.
+     */
+    public void rebuild() {
+        AppProperties.BloomFilter props = appProperties.getBloomFilter();
+        if (!props.isEnabled() || !rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long expected = Math.max(props.getExpectedInsertions(), lastBuildCount.get() * 2);
+            BloomFilter next = BloomFilter.create(expected, props.getFalsePositiveRate());
+            building = next;
+
+            AtomicLong loaded = new AtomicLong();
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(KEYS_SQL);
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, rs -> {
+                next.put(rs.getString(1));
+                loaded.incrementAndGet();
+            }));
+
+            swapLock.lock();
+            try {
+                current = next;
+                building = null;
+            } finally {
+                swapLock.unlock();
+            }
+            lastBuildCount.set(loaded.get());
+            log.info("✅ Short key filter built with {} keys ({} KB) in {} ms",
+                    loaded.get(), next.sizeInBytes() / 1024, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("❌ Failed to build short key filter: {}", e.getMessage(), e);
+        } finally {
+            building = null; // already cleared by the swap unless the build failed
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * @return false only if the key was definitely never issued
+     */
+    public boolean mightContain(String shortKey) {
+        BloomFilter filter = current;
+        if (filter == null || !appProperties.getBloomFilter().isEnabled()) {
+            return true;
+        }
+        boolean present = filter.mightContain(shortKey);
+        if (!present) {
+            rejectedCounter.increment();
+        }
+        return present;
+    }
+
+    /**
+     * Records newly issued keys once the surrounding transaction commits,
+     * and propagates them to the other nodes.
+     */
+    public void add(Collection<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(shortKeys);
+                }
+            });
+        } else {
+            addNow(shortKeys);
+        }
+    }
+
+    public void add(String shortKey) {
+        add(List.of(shortKey));
+    }
+
+    private void addNow(Collection<String> shortKeys) {
+        shortKeys.forEach(this::putLocal);
+        try {
+            stringRedisTemplate.convertAndSend(appProperties.getBloomFilter().getChannel(), String.join("\n", shortKeys));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast {} new short keys: {}", shortKeys.size(), e.getMessage());
+        }
+    }
+
+    private void putLocal(String shortKey) {
+        swapLock.lock();
+        try {
+            BloomFilter filter = current;
+            if (filter != null) {
+                filter.put(shortKey);
+            }
+            BloomFilter next = building;
+            if (next != null) {
+                next.put(shortKey);
+            }
+        } finally {
+            swapLock.unlock();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (String shortKey : body.split("\n")) {
+            if (!shortKey.isEmpty()) {
+                putLocal(shortKey);
+            }
+        }
+    }
+}
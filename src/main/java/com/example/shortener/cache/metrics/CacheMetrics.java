@@ -0,0 +1,78 @@
+package com.example.shortener.cache.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Hit/miss counters for each tier of the redirect cache.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheMetrics {
+
+    public static final String TIER_LOCAL = "local";
+    public static final String TIER_REDIS = "redis";
+
+    private final MeterRegistry meterRegistry;
+    private Counter localHits;
+    private Counter localMisses;
+    private Counter redisHits;
+    private Counter redisMisses;
+    private Counter coalescedLoads;
+    private Counter refreshesScheduled;
+    private Counter refreshesRejected;
+
+    @PostConstruct
+    public void init() {
+        localHits = requests(TIER_LOCAL, "hit");
+        localMisses = requests(TIER_LOCAL, "miss");
+        redisHits = requests(TIER_REDIS, "hit");
+        redisMisses = requests(TIER_REDIS, "miss");
+
+        coalescedLoads = Counter.builder("url.cache.coalesced")
+                .description("Cache misses that waited on another request's database load")
+                .register(meterRegistry);
+
+        refreshesScheduled = refreshes("scheduled");
+        refreshesRejected = refreshes("rejected");
+    }
+
+    private Counter refreshes(String result) {
+        return Counter.builder("url.cache.refreshes")
+                .description("Background refreshes of stale Redis cache entries")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter requests(String tier, String result) {
+        return Counter.builder("url.cache.requests")
+                .description("Redirect cache lookups per tier")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public void recordLocal(boolean hit) {
+        (hit ? localHits : localMisses).increment();
+    }
+
+    public void recordRedis(boolean hit) {
+        (hit ? redisHits : redisMisses).increment();
+    }
+
+    public void recordCoalesced() {
+        coalescedLoads.increment();
+    }
+
+    public void recordRefresh(boolean scheduled) {
+        (scheduled ? refreshesScheduled : refreshesRejected).increment();
+    }
+
+    public MeterRegistry getRegistry() {
+        return meterRegistry;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shortener.cli;
+
+import com.example.shortener.model.ImportReport;
+import com.example.shortener.service.UrlImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line import: {@code java -jar shortener.jar --import.file=urls.csv[.gz] [--import.format=csv|ndjson]}.
+ * The format defaults to the file extension. The application exits when the import is done.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = ImportCommand.FILE_PROPERTY)
+public class ImportCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String FILE_PROPERTY = "import.file";
+
+    /**
+     * Defaults for CLI mode: no web server and none of the serving-side background work.
+     */
+    public static final String[] CLI_DEFAULTS = {
+            "spring.main.web-application-type=none",
+            "spring.kafka.listener.auto-startup=false",
+            "app.warmup.enabled=false",
+            "app.key-pool.enabled=false",
+            "app.bloom-filter.enabled=false",
+            "app.directory.backfill-enabled=false"
+    };
+
+    private final UrlImportService urlImportService;
+    private final Environment environment;
+
+    private int exitCode;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path file = Path.of(environment.getRequiredProperty(FILE_PROPERTY));
+        UrlImportService.Format format = format(file);
+
+        try (InputStream input = open(file)) {
+            ImportReport report = urlImportService.importUrls(input, format);
+            exitCode = report.failed() > 0 ? 2 : 0;
+        } catch (Exception e) {
+            log.error("❌ Import of {} failed: {}", file, e.getMessage(), e);
+            exitCode = 1;
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private UrlImportService.Format format(Path file) {
+        String configured = environment.getProperty("import.format");
+        if (configured != null) {
+            return UrlImportService.Format.valueOf(configured.toUpperCase());
+        }
+        String name = file.getFileName().toString().toLowerCase().replaceFirst("\\.gz$", "");
+        return name.endsWith(".csv") ? UrlImportService.Format.CSV : UrlImportService.Format.NDJSON;
+    }
+
+    private static InputStream open(Path file) throws Exception {
+        InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        return file.toString().endsWith(".gz") ? new GZIPInputStream(input, 1 << 16) : input;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.shortener.config;
+
+import com.example.shortener.properties.AppProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Primary pool from {@code spring.datasource}, plus one pool per
+ * {@code app.read-replicas.urls} entry behind a routing data source.
+ * With no replicas configured every connection comes from the primary.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final String PRIMARY = "primary";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                 AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.ReadReplicas replicas = appProperties.getReadReplicas();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primaryDataSource);
+
+        List<String> replicaKeys = new ArrayList<>();
+        List<HikariDataSource> replicaPools = new ArrayList<>();
+        for (int i = 0; i < replicas.getUrls().size(); i++) {
+            String key = "replica-" + i;
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicas.getUrls().get(i))
+                    .build();
+            replica.setPoolName(key);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(replicas.getMaximumPoolSize());
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            targets.put(key, replica);
+            replicaKeys.add(key);
+            replicaPools.add(replica);
+        }
+
+        RoutingDataSource routing = new RoutingDataSource(replicaKeys, replicaPools);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /**
+     * Round-robins replica-scoped reads over the replicas; everything else goes to the primary.
+     * Owns the replica pools, which are not beans, and closes them with the context;
+     * the primary pool is closed as a bean of its own.
+     */
+    static final class RoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+        private final List<String> replicaKeys;
+        private final List<HikariDataSource> replicaPools;
+        private final AtomicInteger next = new AtomicInteger();
+
+        RoutingDataSource(List<String> replicaKeys, List<HikariDataSource> replicaPools) {
+            this.replicaKeys = replicaKeys;
+            this.replicaPools = replicaPools;
+        }
+
+        @Override
+        public void destroy() {
+            replicaPools.forEach(HikariDataSource::close);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (replicaKeys.isEmpty() || !ReadReplicaRouting.inReplicaScope()) {
+                return PRIMARY;
+            }
+            return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+        }
+    }
+}
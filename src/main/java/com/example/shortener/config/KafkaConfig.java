@@ -1,23 +1,55 @@
 package com.example.shortener.config;
 
+import com.example.shortener.properties.ClickProperties;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
 
 @Configuration
+@ConditionalOnProperty(prefix = "app.clicks", name = "sink", havingValue = "kafka", matchIfMissing = true)
 public class KafkaConfig {
 
     /**
      * Creates the "clicks" topic in Kafka if it does not already exist.
      * Topic configuration:
      * - Name: "clicks"
-     * - Partitions: 6 (allows parallelism for multiple consumers)
+     * - Partitions: app.clicks.topic-partitions (allows parallelism for multiple consumers)
      * - Replication factor: 3 (for fault tolerance and durability)
      *
      * @return NewTopic object representing the "clicks" topic
      */
     @Bean
-    public NewTopic clicksTopic() {
-        return new NewTopic("clicks", 6, (short) 3);
+    public NewTopic clicksTopic(ClickProperties clickProperties) {
+        return new NewTopic("clicks", clickProperties.getTopicPartitions(), (short) 3);
+    }
+
+    /**
+     * Listener factory for the clicks consumer: whole polls are delivered as one
+     * batch, and offsets are committed only when the listener acknowledges them.
+     * A failed batch is retried with backoff until it succeeds, so counts are
+     * not lost while Redis is unavailable.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> clickBatchListenerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ClickProperties clickProperties) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(clickProperties.getConsumerConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(500, 2.0);
+        backOff.setMaxInterval(30_000);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        return factory;
     }
 }
@@ -0,0 +1,74 @@
+package com.example.shortener.config;
+
+import com.example.shortener.properties.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decides which database pool serves a read.
+ *
+ * Reads go to a replica only inside {@link #onReplica}; everything else,
+ * including all writes and transactions, uses the primary. Keys created on this
+ * node are remembered for {@code app.read-replicas.recent-write-window-seconds}
+ * so they can be read from the primary while replicas may still be catching up.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadReplicaRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA_SCOPE = new ThreadLocal<>();
+
+    private final AppProperties appProperties;
+
+    private Cache<String, Boolean> recentWrites;
+
+    @PostConstruct
+    public void init() {
+        recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(appProperties.getReadReplicas().getRecentWriteWindowSeconds()))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return !appProperties.getReadReplicas().getUrls().isEmpty();
+    }
+
+    /**
+     * Runs the given reads against a replica, if any is configured.
+     */
+    public <T> T onReplica(Supplier<T> reads) {
+        if (!isEnabled() || Boolean.TRUE.equals(REPLICA_SCOPE.get())) {
+            return reads.get();
+        }
+        REPLICA_SCOPE.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            REPLICA_SCOPE.remove();
+        }
+    }
+
+    static boolean inReplicaScope() {
+        return Boolean.TRUE.equals(REPLICA_SCOPE.get());
+    }
+
+    public void recordWrite(String shortKey) {
+        if (isEnabled()) {
+            recentWrites.put(shortKey, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @return true if this node created the key recently enough that a replica may not have it yet
+     */
+    public boolean isRecentlyWritten(String shortKey) {
+        return recentWrites.getIfPresent(shortKey) != null;
+    }
+}
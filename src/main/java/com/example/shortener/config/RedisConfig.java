@@ -1,5 +1,7 @@
 package com.example.shortener.config;
 
+import com.example.shortener.cache.CachedRedirect;
+import com.example.shortener.cache.RedirectEntryRedisSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.springframework.context.annotation.Bean;
@@ -8,6 +10,7 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -23,11 +26,7 @@ public class RedisConfig {
     @Bean
     @Primary
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule()); // support for Java 8 date/time
-
-        GenericJackson2JsonRedisSerializer serializer =
-                new GenericJackson2JsonRedisSerializer(objectMapper);
+        GenericJackson2JsonRedisSerializer serializer = jsonSerializer();
 
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
@@ -44,6 +43,20 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * RedisTemplate for cached redirect entries (url:* keys) in the compact binary format.
+     * Legacy JSON entries are still readable.
+     */
+    @Bean
+    public RedisTemplate<String, CachedRedirect> redirectCacheTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, CachedRedirect> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new RedirectEntryRedisSerializer(jsonSerializer()));
+        template.afterPropertiesSet();
+        return template;
+    }
+
     /**
      * StringRedisTemplate for simple string operations
      */
@@ -51,4 +64,20 @@ public class RedisConfig {
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
         return new StringRedisTemplate(connectionFactory);
     }
+
+    /**
+     * Listener container for pub/sub channels (e.g. local cache invalidation)
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    private GenericJackson2JsonRedisSerializer jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule()); // support for Java 8 date/time
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
 }
\ No newline at end of file
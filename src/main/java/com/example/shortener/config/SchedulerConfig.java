@@ -1,19 +1,45 @@
 package com.example.shortener.config;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
-import java.util.concurrent.Executors;
-
+/**
+ * Scheduler for {@code @Scheduled} jobs: a pool of {@value #POOL_SIZE} threads,
+ * so a slow job (say {@code UrlExpiryScheduler.loadUpcoming}) does not hold up
+ * key pool lease heartbeats. Like any {@code ScheduledThreadPoolExecutor}, a
+ * fixed-rate job never overlaps with its own previous run.
+ * With {@code spring.threads.virtual.enabled=true} the pool threads are virtual.
+ */
 @Configuration
 @EnableScheduling
+@RequiredArgsConstructor
 public class SchedulerConfig implements SchedulingConfigurer {
 
+    private static final int POOL_SIZE = 5;
+
+    private final Environment environment;
+
+    /** A bean, so the context shuts the pool down on close. */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(POOL_SIZE);
+        scheduler.setThreadNamePrefix("scheduling-");
+        if (Threading.VIRTUAL.isActive(environment)) {
+            scheduler.setThreadFactory(Thread.ofVirtual().name("scheduling-", 0).factory());
+        }
+        return scheduler;
+    }
+
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
-        taskRegistrar.setScheduler(Executors.newScheduledThreadPool(5));
+        taskRegistrar.setTaskScheduler(taskScheduler());
     }
-}
\ No newline at end of file
+}
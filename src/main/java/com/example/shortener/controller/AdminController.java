@@ -0,0 +1,67 @@
+package com.example.shortener.controller;
+
+import com.example.shortener.model.ImportReport;
+import com.example.shortener.service.UrlExportService;
+import com.example.shortener.service.UrlImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Administration", description = "Operational endpoints")
+public class AdminController {
+    private static final String CSV = "text/csv";
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UrlImportService urlImportService;
+    private final UrlExportService urlExportService;
+
+    @PostMapping(value = "/import", consumes = {CSV, NDJSON})
+    @Operation(summary = "Import URLs in bulk",
+            description = "Streams a CSV (with header) or NDJSON body of short_key, original_url, expires_at, "
+                    + "created_at into the urls table with PostgreSQL COPY. Requires app.admin.enabled "
+                    + "and the X-Admin-Token header.")
+    public ResponseEntity<ImportReport> importUrls(HttpServletRequest httpRequest) throws IOException {
+        UrlImportService.Format format = MediaType.parseMediaType(httpRequest.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? UrlImportService.Format.CSV
+                : UrlImportService.Format.NDJSON;
+        return ResponseEntity.ok(urlImportService.importUrls(httpRequest.getInputStream(), format));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export URLs",
+            description = "Streams every URL with its click count as CSV or NDJSON, optionally gzipped. "
+                    + "Exported columns: short_key, original_url, click_count, is_active, created_at, expires_at, deleted_at. "
+                    + "Requires app.admin.enabled and the X-Admin-Token header.")
+    public void exportUrls(@RequestParam(value = "format", defaultValue = "csv") String format,
+                           @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                           @RequestParam(value = "includeDeleted", defaultValue = "false") boolean includeDeleted,
+                           HttpServletResponse response) throws IOException {
+        UrlExportService.Format exportFormat;
+        try {
+            exportFormat = UrlExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown export format '" + format + "'");
+            return;
+        }
+        String extension = exportFormat == UrlExportService.Format.CSV ? "csv" : "ndjson";
+        String filename = "urls-" + LocalDate.now() + "." + extension + (gzip ? ".gz" : "");
+
+        // Written synchronously so a long export isn't cut off by the async request timeout
+        response.setContentType(gzip ? "application/gzip" : exportFormat == UrlExportService.Format.CSV ? CSV : NDJSON);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        urlExportService.export(response.getOutputStream(), exportFormat, gzip, includeDeleted);
+    }
+}
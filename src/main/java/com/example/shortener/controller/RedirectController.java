@@ -1,6 +1,7 @@
 package com.example.shortener.controller;
 
-import com.example.shortener.entity.Url;
+import com.example.shortener.cache.HeavyHitterTracker;
+import com.example.shortener.model.RedirectEntry;
 import com.example.shortener.service.UrlService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,7 @@ import java.net.URI;
 public class RedirectController {
 
     private final UrlService urlService;
+    private final HeavyHitterTracker heavyHitterTracker;
 
     @Operation(summary = "Resolve a short key to full URL")
     @GetMapping("/{key}")
@@ -33,17 +35,18 @@ public class RedirectController {
             return ResponseEntity.notFound().build();
         }
 
-        Url u = opt.get();
+        RedirectEntry entry = opt.get();
+        heavyHitterTracker.record(key);
         String ip = req.getRemoteAddr();
         String ua = req.getHeader("User-Agent");
         String referer = req.getHeader("Referer");
 
-        log.info("Short key '{}' resolved to '{}'", key, u.getOriginalUrl());
+        log.info("Short key '{}' resolved to '{}'", key, entry.targetUrl());
         log.debug("Click details: IP='{}', User-Agent='{}', Referer='{}'", ip, ua, referer);
 
         urlService.publishClickEvent(key, ip, ua, referer);
         log.debug("Click event published for key '{}'", key);
 
-        return ResponseEntity.status(302).location(URI.create(u.getOriginalUrl())).build();
+        return ResponseEntity.status(302).location(URI.create(entry.targetUrl())).build();
     }
 }
@@ -2,27 +2,38 @@ package com.example.shortener.controller;
 
 import com.example.shortener.entity.BlacklistUrl;
 import com.example.shortener.entity.Url;
+import com.example.shortener.model.BulkShortenResponse;
 import com.example.shortener.model.ShortenUrlRequest;
 import com.example.shortener.model.ShortenUrlResponse;
 import com.example.shortener.properties.AppProperties;
 import com.example.shortener.service.BlacklistService;
+import com.example.shortener.service.BulkShortenService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.shortener.service.UrlService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 @Tag(name = "URL Shortener", description = "Endpoints for creating and resolving short URLs")
 public class UrlController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final UrlService urlService;
     private final AppProperties appProperties;
     private final BlacklistService blacklistService;
+    private final BulkShortenService bulkShortenService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/shorten")
     @Operation(summary = "Create a short URL")
@@ -40,19 +51,38 @@ public class UrlController {
                 ua
         );
 
-        String baseUrl = System.getenv().getOrDefault("BASE_URL", appProperties.getBaseUrl());
         ShortenUrlResponse response = new ShortenUrlResponse(
                 url.getShortKey(),
-                String.format("%s/%s", baseUrl, url.getShortKey())
+                String.format("%s/%s", baseUrl(), url.getShortKey())
         );
 
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/shorten/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    @Operation(summary = "Create short URLs in bulk",
+            description = "Accepts a JSON array or a streamed NDJSON body of shorten requests. "
+                    + "Items succeed or fail independently; results are returned in request order.")
+    public ResponseEntity<BulkShortenResponse> shortenBatch(HttpServletRequest httpRequest) throws IOException {
+        String ip = httpRequest.getRemoteAddr();
+        String ua = httpRequest.getHeader("User-Agent");
+
+        // Both a JSON array and NDJSON are read one request at a time
+        try (MappingIterator<ShortenUrlRequest> requests = objectMapper
+                .readerFor(ShortenUrlRequest.class)
+                .readValues(httpRequest.getInputStream())) {
+            return ResponseEntity.ok(bulkShortenService.shorten(requests, ip, ua, baseUrl()));
+        }
+    }
+
     @PostMapping("/blacklist")
     @Operation(summary = "Add a URL pattern to the blacklist")
     public ResponseEntity<BlacklistUrl> addToBlacklist(@RequestParam("pattern") String pattern) {
         BlacklistUrl bl = blacklistService.addPattern(pattern);
         return ResponseEntity.ok(bl);
     }
+
+    private String baseUrl() {
+        return System.getenv().getOrDefault("BASE_URL", appProperties.getBaseUrl());
+    }
 }
\ No newline at end of file
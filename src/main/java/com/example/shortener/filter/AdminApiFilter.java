@@ -0,0 +1,53 @@
+package com.example.shortener.filter;
+
+import com.example.shortener.properties.AppProperties;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Guards /api/admin: the import and export endpoints read or write every URL.
+ * They answer 404 unless {@code app.admin.enabled} is set, and 401 unless the
+ * request carries {@code app.admin.token} in the X-Admin-Token header.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AdminApiFilter implements Filter {
+
+    private static final String ADMIN_PATH = "/api/admin/";
+    private static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final AppProperties appProperties;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+
+        // The servlet path is decoded and normalized, so encoded variants can't slip past
+        if (!req.getServletPath().startsWith(ADMIN_PATH)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AppProperties.Admin admin = appProperties.getAdmin();
+        if (!admin.isEnabled()) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!ApiTokens.matches(admin.getToken(), req.getHeader(TOKEN_HEADER))) {
+            log.warn("Rejected admin request {} {} from {}", req.getMethod(), req.getRequestURI(), req.getRemoteAddr());
+            res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
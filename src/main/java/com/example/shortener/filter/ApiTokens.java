@@ -0,0 +1,25 @@
+package com.example.shortener.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Shared-token checks for the guarded API filters.
+ */
+final class ApiTokens {
+
+    private ApiTokens() {}
+
+    /**
+     * @return true if a token is configured and the presented one equals it;
+     * an unset token refuses every request
+     */
+    static boolean matches(String expected, String presented) {
+        if (expected == null || expected.isBlank() || presented == null) {
+            return false;
+        }
+        // Constant-time, so the token can't be guessed a character at a time
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
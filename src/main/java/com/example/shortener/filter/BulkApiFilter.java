@@ -0,0 +1,48 @@
+package com.example.shortener.filter;
+
+import com.example.shortener.properties.AppProperties;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Guards POST /api/shorten/batch: one request mints up to {@code app.bulk.max-items}
+ * keys, and the rate limiter only charges per request, so the endpoint answers 401
+ * unless the request carries {@code app.bulk.token} in the X-Api-Token header.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkApiFilter implements Filter {
+
+    private static final String BULK_PATH = "/api/shorten/batch";
+    private static final String TOKEN_HEADER = "X-Api-Token";
+
+    private final AppProperties appProperties;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+
+        // The servlet path is decoded and normalized, so encoded variants can't slip past
+        if (!req.getServletPath().equals(BULK_PATH)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!ApiTokens.matches(appProperties.getBulk().getToken(), req.getHeader(TOKEN_HEADER))) {
+            log.warn("Rejected bulk request {} {} from {}", req.getMethod(), req.getRequestURI(), req.getRemoteAddr());
+            res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
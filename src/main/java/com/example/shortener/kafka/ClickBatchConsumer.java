@@ -1,37 +1,114 @@
 package com.example.shortener.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.shortener.util.ClickShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Counts clicks from the {@code clicks} topic into the sharded Redis
+ * {@code clicks:{n}} hashes (see {@link ClickShards}).
+ *
+ * Each poll arrives as one batch. Clicks are summed per short key in memory and
+ * written with one pipelined HINCRBY per key into its shard, plus one EXPIRE per
+ * shard touched, so a batch costs one Redis round trip. Offsets are acknowledged only after that write
+ * succeeds; a failed batch is redelivered (see {@code clickBatchListenerFactory}).
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "app.clicks", name = "sink", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 public class ClickBatchConsumer {
 
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry;
+    private final ClickShards clickShards;
 
-    private static final String HASH_KEY = "clicks";
+    private static final String TOPIC = "clicks";
+    private static final Duration HASH_TTL = Duration.ofDays(2);
 
-    @KafkaListener(topics = "clicks", groupId = "clicks-group")
-    public void consume(String message) {
-        try {
-            Map<String, Object> data = mapper.readValue(message, Map.class);
-            String shortKey = (String) data.get("key");
+    private Counter appliedCounter;
+    private Counter invalidCounter;
+    private DistributionSummary keysPerBatch;
 
-            if (shortKey == null || shortKey.isBlank()) return;
+    @PostConstruct
+    public void init() {
+        appliedCounter = eventCounter("applied");
+        invalidCounter = eventCounter("invalid");
+        keysPerBatch = DistributionSummary.builder("clicks.consumer.batch.keys")
+                .description("Distinct short keys written per consumed batch")
+                .register(meterRegistry);
+    }
+
+    private Counter eventCounter(String outcome) {
+        return Counter.builder("clicks.consumer.events")
+                .description("Consumed click events by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
-            redisTemplate.opsForHash().increment(HASH_KEY, shortKey, 1L);
-            redisTemplate.expire(HASH_KEY, 2, TimeUnit.DAYS);
-        } catch (Exception e) {
-            log.error("Failed to process click payload -> {}", message, e);
+    @KafkaListener(topics = TOPIC, groupId = "clicks-group", containerFactory = "clickBatchListenerFactory")
+    public void consume(List<String> messages, Acknowledgment ack) {
+        // long[] cells are bumped in place, so repeated keys don't box a new Long per click
+        Map<String, long[]> counts = new HashMap<>();
+        int invalid = 0;
+        for (String message : messages) {
+            ClickEvent event = ClickEventCodec.decode(message);
+            String shortKey = event == null ? null : event.key();
+            if (shortKey == null || shortKey.isBlank()) {
+                invalid++;
+                log.debug("Skipping malformed click payload -> {}", message);
+                continue;
+            }
+            counts.computeIfAbsent(shortKey, k -> new long[1])[0]++;
         }
+
+        if (!counts.isEmpty()) {
+            write(counts);
+        }
+        ack.acknowledge();
+
+        appliedCounter.increment(messages.size() - invalid);
+        invalidCounter.increment(invalid);
+        keysPerBatch.record(counts.size());
+        if (invalid > 0) {
+            log.warn("Skipped {} malformed click payloads", invalid);
+        }
+    }
+
+    private void write(Map<String, long[]> counts) {
+        boolean[] touched = new boolean[clickShards.count()];
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            counts.forEach((shortKey, count) -> {
+                int shard = clickShards.shardOf(shortKey);
+                touched[shard] = true;
+                connection.hashCommands().hIncrBy(bytes(clickShards.hashKey(shard)), bytes(shortKey), count[0]);
+            });
+            for (int shard = 0; shard < touched.length; shard++) {
+                if (touched[shard]) {
+                    connection.keyCommands().expire(bytes(clickShards.hashKey(shard)), HASH_TTL.getSeconds());
+                }
+            }
+            return null;
+        });
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,13 @@
+package com.example.shortener.kafka;
+
+/**
+ * A single redirect click, as buffered in memory and sent to Kafka.
+ *
+ * @param key       the clicked short key
+ * @param ip        client IP
+ * @param userAgent client User-Agent
+ * @param referer   referring page
+ * @param timestamp click time in epoch millis
+ */
+public record ClickEvent(String key, String ip, String userAgent, String referer, long timestamp) {
+}
@@ -0,0 +1,89 @@
+package com.example.shortener.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+
+/**
+ * Compact text encoding of {@link ClickEvent} payloads on the {@code clicks} topic.
+ *
+ * Layout: {@code 1\tts\tkey\tip\tua\treferer}, where the leading field is the
+ * format version. Tabs and line breaks inside fields are replaced by spaces.
+ * Decoding still accepts the legacy JSON map payloads.
+ */
+public final class ClickEventCodec {
+
+    private static final char VERSION = '1';
+    private static final char SEPARATOR = '\t';
+    private static final ObjectMapper LEGACY_MAPPER = new ObjectMapper();
+
+    private ClickEventCodec() {}
+
+    public static String encode(ClickEvent event) {
+        String ip = nullToEmpty(event.ip());
+        String ua = nullToEmpty(event.userAgent());
+        String referer = nullToEmpty(event.referer());
+
+        // version + 5 separators + up to 13 timestamp digits
+        int size = 19 + event.key().length() + ip.length() + ua.length() + referer.length();
+        StringBuilder sb = new StringBuilder(size);
+        sb.append(VERSION).append(SEPARATOR)
+                .append(event.timestamp()).append(SEPARATOR);
+        appendField(sb, event.key()).append(SEPARATOR);
+        appendField(sb, ip).append(SEPARATOR);
+        appendField(sb, ua).append(SEPARATOR);
+        appendField(sb, referer);
+        return sb.toString();
+    }
+
+    /**
+     * @return the decoded event, or null if the payload is malformed
+     */
+    public static ClickEvent decode(String payload) {
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        if (payload.charAt(0) == '{') {
+            return decodeLegacy(payload);
+        }
+
+        String[] fields = payload.split(String.valueOf(SEPARATOR), -1);
+        if (fields.length != 6 || fields[0].length() != 1 || fields[0].charAt(0) != VERSION) {
+            return null;
+        }
+        try {
+            return new ClickEvent(fields[2], fields[3], fields[4], fields[5], Long.parseLong(fields[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static ClickEvent decodeLegacy(String json) {
+        try {
+            JsonNode node = LEGACY_MAPPER.readTree(json);
+            String ts = node.path("ts").asText(null);
+            return new ClickEvent(
+                    node.path("key").asText(null),
+                    node.path("ip").asText(""),
+                    node.path("ua").asText(""),
+                    node.path("referer").asText(""),
+                    ts == null ? 0L : Instant.parse(ts).toEpochMilli()
+            );
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static StringBuilder appendField(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            sb.append(c == SEPARATOR || c == '\n' || c == '\r' ? ' ' : c);
+        }
+        return sb;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
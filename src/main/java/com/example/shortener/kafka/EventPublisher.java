@@ -1,44 +1,155 @@
 package com.example.shortener.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.shortener.properties.ClickProperties;
+import com.example.shortener.service.ClickSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Publishes URL click events to Kafka.
+ *
+ * The redirect thread only offers the event to a bounded, lock-free in-memory
+ * buffer; a dedicated drainer thread encodes and hands batches to the Kafka
+ * producer. When the buffer fills up the configured overflow policy drops or
+ * samples events, so click tracking never delays or blocks a redirect.
  */
 @Service
+@ConditionalOnProperty(prefix = "app.clicks", name = "sink", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
-public class EventPublisher {
+public class EventPublisher implements ClickSink {
+
+    private static final String TOPIC = "clicks";
 
     private final KafkaTemplate<String, String> kafka;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final ClickProperties clickProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentLinkedQueue<ClickEvent> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private volatile boolean running;
+    private Thread drainer;
+    private Counter acceptedCounter;
+    private Counter droppedCounter;
+    private Counter sampledOutCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void start() {
+        acceptedCounter = clickCounter("accepted");
+        droppedCounter = clickCounter("dropped");
+        sampledOutCounter = clickCounter("sampled_out");
+        failedCounter = clickCounter("failed");
+        Gauge.builder("clicks.buffer.depth", depth, AtomicInteger::get)
+                .description("Click events waiting to be sent to Kafka")
+                .register(meterRegistry);
+
+        running = true;
+        drainer = Thread.ofPlatform()
+                .name("click-drainer")
+                .daemon(true)
+                .start(this::drainLoop);
+    }
+
+    private Counter clickCounter(String outcome) {
+        return Counter.builder("clicks.buffer.events")
+                .description("Click events by buffer outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
     /**
-     * Send a click event for a short URL key.
+     * Buffer a click event for a short URL key. Never blocks.
      */
+    @Override
     public void publishClick(String key, String ip, String ua, String referer) {
+        int capacity = clickProperties.getBufferCapacity();
+        boolean sampling = clickProperties.getOverflowPolicy() == ClickProperties.OverflowPolicy.SAMPLE;
+        boolean sampledIn = false;
+
+        // Reserve a slot before offering, so concurrent publishers can't overshoot the capacity
+        int current;
+        do {
+            current = depth.get();
+            if (current >= capacity) {
+                droppedCounter.increment();
+                return;
+            }
+            if (sampling && !sampledIn && current >= capacity / 2) {
+                if (ThreadLocalRandom.current().nextInt(clickProperties.getSampleRate()) != 0) {
+                    sampledOutCounter.increment();
+                    return;
+                }
+                sampledIn = true; // sampled once per event, however often the CAS retries
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+
+        buffer.offer(new ClickEvent(key, ip, ua, referer, System.currentTimeMillis()));
+        acceptedCounter.increment();
+    }
+
+    private void drainLoop() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(clickProperties.getDrainIntervalMs());
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+    }
+
+    private int drainBatch() {
+        int batchSize = clickProperties.getBatchSize();
+        int sent = 0;
+        ClickEvent event;
+        while (sent < batchSize && (event = buffer.poll()) != null) {
+            depth.decrementAndGet();
+            send(event);
+            sent++;
+        }
+        return sent;
+    }
+
+    private void send(ClickEvent event) {
         try {
-            Map<String, Object> payload = Map.of(
-                    "key", key,
-                    "ip", ip == null ? "" : ip,
-                    "ua", ua == null ? "" : ua,
-                    "referer", referer == null ? "" : referer,
-                    "ts", Instant.now().toString()
-            );
-
-            String json = mapper.writeValueAsString(payload);
-            kafka.send("clicks", key, json);
-
-            log.info("Published click for key '{}'", key);
+            kafka.send(TOPIC, event.key(), ClickEventCodec.encode(event))
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            failedCounter.increment();
+                            log.debug("Failed to publish click for '{}': {}", event.key(), ex.getMessage());
+                        }
+                    });
         } catch (Exception e) {
-            log.error("Failed to publish click for '{}'", key, e);
+            failedCounter.increment();
+            log.error("Failed to publish click for '{}'", event.key(), e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Flush whatever is left before the producer is closed
+        while (drainBatch() > 0) {
+            // keep draining
         }
+        kafka.flush();
     }
 }
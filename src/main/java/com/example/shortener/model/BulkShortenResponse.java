@@ -0,0 +1,14 @@
+package com.example.shortener.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BulkShortenResponse {
+    private int created;
+    private int failed;
+    private List<BulkShortenResult> results;
+}
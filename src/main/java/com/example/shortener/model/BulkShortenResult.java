@@ -0,0 +1,25 @@
+package com.example.shortener.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of one item of a bulk shorten request, in request order.
+ */
+@Data
+@AllArgsConstructor
+public class BulkShortenResult {
+    private int index;
+    private boolean created;
+    private String shortKey;
+    private String shortUrl;
+    private String error;
+
+    public static BulkShortenResult created(int index, String shortKey, String shortUrl) {
+        return new BulkShortenResult(index, true, shortKey, shortUrl, null);
+    }
+
+    public static BulkShortenResult failed(int index, String error) {
+        return new BulkShortenResult(index, false, null, null, error);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.shortener.model;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param read        rows read from the input
+ * @param imported    rows written to {@code urls}
+ * @param invalid     rows missing a key or URL, or with a key that is too long
+ * @param reserved    rows skipped under {@code app.url-import.reject-generated-keys} because their key has the format of a generated key
+ * @param blacklisted rows whose URL matched the blacklist
+ * @param duplicates  rows whose key already existed, in the database or earlier in the input
+ * @param failed      rows the database rejected
+ */
+public record ImportReport(long read, long imported, long invalid, long reserved, long blacklisted,
+                           long duplicates, long failed, long elapsedMillis) {
+
+    public long rowsPerSecond() {
+        return elapsedMillis == 0 ? imported : imported * 1000 / elapsedMillis;
+    }
+}
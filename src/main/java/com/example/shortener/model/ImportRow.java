@@ -0,0 +1,19 @@
+package com.example.shortener.model;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * One URL of a bulk import, read from a CSV row or an NDJSON line.
+ * Timestamps are ISO-8601 instants; a missing created_at means "now".
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportRow(
+        @JsonProperty("short_key") @JsonAlias("shortKey") String shortKey,
+        @JsonProperty("original_url") @JsonAlias("originalUrl") String originalUrl,
+        @JsonProperty("expires_at") @JsonAlias("expiresAt") Instant expiresAt,
+        @JsonProperty("created_at") @JsonAlias("createdAt") Instant createdAt) {
+}
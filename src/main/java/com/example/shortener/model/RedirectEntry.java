@@ -0,0 +1,37 @@
+package com.example.shortener.model;
+
+import com.example.shortener.entity.Url;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Slim, immutable view of a short URL holding only what the redirect path needs.
+ * This is the value stored in the local and Redis caches.
+ *
+ * @param targetUrl the URL to redirect to
+ * @param expiresAt optional expiration timestamp
+ * @param active    whether the link is active and not soft-deleted
+ */
+public record RedirectEntry(String targetUrl, Instant expiresAt, boolean active) {
+
+    public static RedirectEntry from(Url url) {
+        return new RedirectEntry(
+                url.getOriginalUrl(),
+                url.getExpiresAt(),
+                url.isActive() && url.getDeletedAt() == null
+        );
+    }
+
+    /**
+     * How long a cache may hold this entry: {@code max}, cut short so an active
+     * link leaves the cache (rounded up to the second) once it expires.
+     */
+    public Duration cacheTtl(Duration max, Instant now) {
+        if (!active || expiresAt == null || !expiresAt.isAfter(now)) {
+            return max;
+        }
+        Duration remaining = Duration.ofSeconds(Duration.between(now, expiresAt).getSeconds() + 1);
+        return remaining.compareTo(max) < 0 ? remaining : max;
+    }
+}
@@ -5,14 +5,33 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "app")
 @Getter
 @Setter
 public class AppProperties {
     private String baseUrl = "http://localhost:8080";
+    private int shortKeyLength = 7;
     private long cacheTtlSeconds = 86400;
+    private boolean migrateLegacyCacheEntries = true;
     private Qr qr = new Qr();
+    private LocalCache localCache = new LocalCache();
+    private BloomFilter bloomFilter = new BloomFilter();
+    private StaleWhileRevalidate staleWhileRevalidate = new StaleWhileRevalidate();
+    private HeavyHitters heavyHitters = new HeavyHitters();
+    private Warmup warmup = new Warmup();
+    private KeyGenerator keyGenerator = new KeyGenerator();
+    private KeyPool keyPool = new KeyPool();
+    private Directory directory = new Directory();
+    private Bulk bulk = new Bulk();
+    private UrlImport urlImport = new UrlImport();
+    private Admin admin = new Admin();
+    private ReadReplicas readReplicas = new ReadReplicas();
+    private Partitions partitions = new Partitions();
+    private Expiry expiry = new Expiry();
 
     @Getter
     @Setter
@@ -21,4 +40,175 @@ public class AppProperties {
         private int height;
         private int ttlDays;
     }
+
+    /**
+     * In-process (L1) cache sitting in front of Redis on the redirect path.
+     */
+    @Getter
+    @Setter
+    public static class LocalCache {
+        private boolean enabled = true;
+        private long maximumSize = 100_000;
+        private long ttlSeconds = 60;
+        private String invalidationChannel = "url-invalidation";
+    }
+
+    /**
+     * Membership filter of issued short keys used to reject unknown keys early.
+     */
+    @Getter
+    @Setter
+    public static class BloomFilter {
+        private boolean enabled = true;
+        private long expectedInsertions = 10_000_000;
+        private double falsePositiveRate = 0.01;
+        private String rebuildCron = "0 30 4 * * *";
+        private String channel = "url-created";
+    }
+
+    /**
+     * Soft expiry of Redis cache entries: stale entries are served while
+     * being refreshed in the background.
+     */
+    @Getter
+    @Setter
+    public static class StaleWhileRevalidate {
+        private boolean enabled = true;
+        private double softTtlRatio = 0.8;
+        private double jitterRatio = 0.1;
+        private double beta = 1.0;
+    }
+
+    /**
+     * Streaming top-K tracking of redirect traffic and pinning of the hottest keys.
+     */
+    @Getter
+    @Setter
+    public static class HeavyHitters {
+        private boolean enabled = true;
+        private int topK = 100;
+        private int sketchDepth = 4;
+        private int sketchWidth = 8192;
+        private long decayIntervalSeconds = 10;
+        private long pinThreshold = 1000;
+    }
+
+    /**
+     * Startup cache warm-up from the most clicked active URLs.
+     */
+    @Getter
+    @Setter
+    public static class Warmup {
+        private boolean enabled = true;
+        private int topN = 50_000;
+        private int localTopN = 5_000;
+        private int batchSize = 1_000;
+    }
+
+    /**
+     * Generated short keys: sequence-backed ids, optionally scrambled.
+     */
+    @Getter
+    @Setter
+    public static class KeyGenerator {
+        private boolean scramble = true;
+        /** Required while scrambling is on; there is deliberately no default. */
+        private String secret;
+    }
+
+    /**
+     * Per-node pool of pre-minted short keys.
+     */
+    @Getter
+    @Setter
+    public static class KeyPool {
+        private boolean enabled = true;
+        private int capacity = 10_000;
+        private int lowWatermark = 2_000;
+        private long heartbeatSeconds = 20;
+        private long leaseTimeoutSeconds = 600;
+    }
+
+    /**
+     * Global short key directory used to locate a key's partition.
+     */
+    @Getter
+    @Setter
+    public static class Directory {
+        private boolean fallbackScanEnabled = true;
+        private boolean backfillEnabled = true;
+        private int backfillBatchSize = 5_000;
+    }
+
+    /**
+     * Limits of the bulk shorten endpoint, which only serves requests carrying
+     * the shared token: it is not rate limited per item.
+     */
+    @Getter
+    @Setter
+    public static class Bulk {
+        private int maxItems = 1_000;
+        private int chunkSize = 1_000;
+        private String token;
+    }
+
+    /**
+     * Bulk import through PostgreSQL COPY.
+     */
+    @Getter
+    @Setter
+    public static class UrlImport {
+        private int chunkSize = 10_000;
+        private long progressIntervalSeconds = 10;
+        private boolean rejectGeneratedKeys = false;
+    }
+
+    /**
+     * Access to the /api/admin import and export endpoints: off unless enabled,
+     * and then only for requests carrying the shared token.
+     */
+    @Getter
+    @Setter
+    public static class Admin {
+        private boolean enabled = false;
+        private String token;
+    }
+
+    /**
+     * Replica pools serving redirect lookups; credentials are shared with spring.datasource.
+     */
+    @Getter
+    @Setter
+    public static class ReadReplicas {
+        private List<String> urls = new ArrayList<>();
+        private int maximumPoolSize = 20;
+        private long recentWriteWindowSeconds = 5;
+    }
+
+    /**
+     * Lifecycle of the monthly urls partitions.
+     */
+    @Getter
+    @Setter
+    public static class Partitions {
+        private boolean enabled = true;
+        private int monthsAhead = 3;
+        private long deletedRetentionDays = 30;
+        private String archiveSchema;
+        private String cron = "0 45 2 * * *";
+        private long metricsIntervalSeconds = 300;
+    }
+
+    /**
+     * Timing-wheel deactivation of URLs at their expiresAt.
+     */
+    @Getter
+    @Setter
+    public static class Expiry {
+        private boolean enabled = true;
+        private long tickMillis = 1000;
+        private long horizonMinutes = 120;
+        private long loadIntervalSeconds = 300;
+        private int batchSize = 500;
+    }
 }
@@ -0,0 +1,93 @@
+package com.example.shortener.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for click tracking.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.clicks")
+public class ClickProperties {
+
+    /**
+     * Where clicks are counted: KAFKA (publish, consume into Redis, flush) or EMBEDDED
+     * (in-process counters flushed straight to the database, for single-node deployments).
+     */
+    private Sink sink = Sink.KAFKA;
+
+    /**
+     * With the EMBEDDED sink, how often counts are written to the database.
+     * This is also the most that can be lost if the process dies.
+     */
+    private long embeddedFlushIntervalMs = 5000;
+
+    /**
+     * Maximum number of click events buffered in memory before the overflow policy applies.
+     */
+    private int bufferCapacity = 65_536;
+
+    /**
+     * Maximum number of events handed to Kafka per drain cycle.
+     */
+    private int batchSize = 500;
+
+    /**
+     * How long the drainer sleeps when the buffer is empty.
+     */
+    private long drainIntervalMs = 5;
+
+    /**
+     * What to do once the buffer is filling up faster than it drains.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    /**
+     * With SAMPLE, keep 1 in N events once the buffer is more than half full.
+     */
+    private int sampleRate = 10;
+
+    /**
+     * Partitions of the clicks topic, when it is created by the application.
+     */
+    private int topicPartitions = 6;
+
+    /**
+     * Consumer threads for the clicks topic; more than topicPartitions would sit idle.
+     */
+    private int consumerConcurrency = 6;
+
+    /**
+     * Redis hashes click counts are spread over ({@code clicks:{0}} ... {@code clicks:{n-1}}).
+     * Safe to raise; shards beyond a lowered count are no longer flushed.
+     */
+    private int shards = 16;
+
+    /**
+     * Snapshot chunks written to the database at the same time by one flush.
+     */
+    private int flushParallelism = 4;
+
+    /**
+     * Attempts per snapshot chunk before it is left in the snapshot for a later flush.
+     */
+    private int flushMaxAttempts = 3;
+
+    /**
+     * Snapshots whose flush has not made progress for this long are taken over by
+     * the next flush on any node.
+     */
+    private long snapshotClaimAfterSeconds = 300;
+
+    public enum Sink {
+        KAFKA,
+        EMBEDDED
+    }
+
+    public enum OverflowPolicy {
+        DROP,    // Drop new events only when the buffer is full
+        SAMPLE   // Start sampling at half capacity, drop when full
+    }
+}
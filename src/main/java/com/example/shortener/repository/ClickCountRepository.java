@@ -0,0 +1,89 @@
+package com.example.shortener.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds aggregated click counts to {@code urls.click_count}.
+ *
+ * A whole chunk goes in as one set-based UPDATE joined against
+ * {@code unnest(keys, deltas)}, instead of one statement per key. The join
+ * through the short key directory supplies {@code created_at}, so every key
+ * resolves to the single partition holding it.
+ *
+ * Rows are bound in short key order, so writers whose chunks share keys (two
+ * flush lanes, or two nodes) lock those rows in the same order instead of
+ * deadlocking each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClickCountRepository {
+
+    private static final String MERGE_VIA_DIRECTORY_SQL = """
+            UPDATE urls u SET click_count = u.click_count + c.delta
+            FROM unnest(?::text[], ?::bigint[]) AS c(short_key, delta)
+            JOIN short_key_directory d ON d.short_key = c.short_key
+            WHERE u.short_key = d.short_key AND u.created_at = d.created_at
+            RETURNING u.short_key
+            """;
+
+    private static final String MERGE_ANY_PARTITION_SQL = """
+            UPDATE urls u SET click_count = u.click_count + c.delta
+            FROM unnest(?::text[], ?::bigint[]) AS c(short_key, delta)
+            WHERE u.short_key = c.short_key
+            RETURNING u.short_key
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds each delta to its URL's click count. Keys must be distinct.
+     *
+     * @param scanAllPartitions also look for keys the directory doesn't know yet
+     *                          (before its backfill has completed) in every partition
+     * @return number of URLs updated; clicks on keys that no longer exist are dropped
+     */
+    public int addClicks(List<Map.Entry<String, Long>> counts, boolean scanAllPartitions) {
+        if (counts.isEmpty()) {
+            return 0;
+        }
+        counts = new ArrayList<>(counts);
+        counts.sort(Map.Entry.comparingByKey());
+        List<String> updated = merge(MERGE_VIA_DIRECTORY_SQL, counts);
+        if (!scanAllPartitions || updated.size() == counts.size()) {
+            return updated.size();
+        }
+
+        Set<String> found = new HashSet<>(updated);
+        List<Map.Entry<String, Long>> missing = new ArrayList<>();
+        for (Map.Entry<String, Long> count : counts) {
+            if (!found.contains(count.getKey())) {
+                missing.add(count);
+            }
+        }
+        return updated.size() + merge(MERGE_ANY_PARTITION_SQL, missing).size();
+    }
+
+    private List<String> merge(String sql, List<Map.Entry<String, Long>> counts) {
+        String[] keys = new String[counts.size()];
+        Long[] deltas = new Long[counts.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = counts.get(i).getKey();
+            deltas[i] = counts.get(i).getValue();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("text", keys));
+            ps.setArray(2, con.createArrayOf("bigint", deltas));
+            return ps;
+        }, (rs, i) -> rs.getString(1));
+    }
+}
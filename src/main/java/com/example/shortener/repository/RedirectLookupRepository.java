@@ -0,0 +1,70 @@
+package com.example.shortener.repository;
+
+import com.example.shortener.model.RedirectEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only lookups for the redirect path.
+ *
+ * Selects only the three columns a redirect needs and maps them straight to a
+ * {@link RedirectEntry}: no persistence context, entity snapshot or transaction.
+ * The SQL strings are constant, so after a few executions per connection the
+ * PostgreSQL driver switches them to cached server-side prepared statements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RedirectLookupRepository {
+
+    private static final String SELECT = "SELECT original_url, expires_at, is_active FROM urls WHERE short_key = ? AND deleted_at IS NULL";
+
+    private static final String IN_RANGE_SQL = SELECT + " AND created_at >= ? AND created_at < ?";
+    private static final String VIA_DIRECTORY_SQL = SELECT
+            + " AND created_at = (SELECT created_at FROM short_key_directory WHERE short_key = ?)";
+    private static final String ANY_PARTITION_SQL = SELECT + " LIMIT 1";
+
+    private static final RowMapper<RedirectEntry> MAPPER = (rs, i) -> {
+        // Columns hold UTC wall-clock time (hibernate.jdbc.time_zone)
+        LocalDateTime expiresAt = rs.getObject("expires_at", LocalDateTime.class);
+        return new RedirectEntry(
+                rs.getString("original_url"),
+                expiresAt == null ? null : expiresAt.toInstant(ZoneOffset.UTC),
+                rs.getBoolean("is_active"));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Looks in the single partition covering {@code [from, to)}.
+     */
+    public Optional<RedirectEntry> findInRange(String shortKey, Instant from, Instant to) {
+        return first(jdbcTemplate.query(IN_RANGE_SQL, MAPPER, shortKey,
+                LocalDateTime.ofInstant(from, ZoneOffset.UTC), LocalDateTime.ofInstant(to, ZoneOffset.UTC)));
+    }
+
+    /**
+     * Probes the short key directory, then the one partition it names.
+     */
+    public Optional<RedirectEntry> findViaDirectory(String shortKey) {
+        return first(jdbcTemplate.query(VIA_DIRECTORY_SQL, MAPPER, shortKey, shortKey));
+    }
+
+    /**
+     * Probes every partition; only for keys the directory may not know yet.
+     */
+    public Optional<RedirectEntry> findInAnyPartition(String shortKey) {
+        return first(jdbcTemplate.query(ANY_PARTITION_SQL, MAPPER, shortKey));
+    }
+
+    private static Optional<RedirectEntry> first(List<RedirectEntry> rows) {
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+}
@@ -4,7 +4,6 @@ import com.example.shortener.entity.Url;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -22,7 +21,8 @@ public interface UrlRepository extends JpaRepository<Url, UUID> {
     @Query("""
             SELECT u FROM Url u
             WHERE u.shortKey = :shortKey
-              AND u.createdAt BETWEEN :from AND :to
+              AND u.createdAt >= :from
+              AND u.createdAt < :to
             """)
     Optional<Url> findByShortKeyInRange(String shortKey, Instant from, Instant to);
 
@@ -30,10 +30,14 @@ public interface UrlRepository extends JpaRepository<Url, UUID> {
             SELECT u FROM Url u
             WHERE u.shortKey = :shortKey
               AND u.deletedAt IS NULL
-              AND u.createdAt BETWEEN :from AND :to
+              AND u.createdAt >= :from
+              AND u.createdAt < :to
             """)
     Optional<Url> findActiveByShortKeyInRange(String shortKey, Instant from, Instant to);
 
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM short_key_directory WHERE short_key = :shortKey)", nativeQuery = true)
+    boolean existsInDirectory(@Param("shortKey") String shortKey);
+
     List<Url> findByIsActiveTrueAndExpiresAtBefore(Instant now);
 
     @Query("""
@@ -43,12 +47,4 @@ public interface UrlRepository extends JpaRepository<Url, UUID> {
             ORDER BY u.deletedAt
             """)
     List<Url> findSoftDeletedBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
-
-    @Modifying
-    @Query("""
-             UPDATE Url u SET u.isActive = false, u.deletedAt = :now 
-             WHERE u.isActive = true 
-                 AND u.expiresAt < :cutoff
-            """)
-    int bulkDeactivateExpiredUrls(@Param("cutoff") Instant cutoff, @Param("now") Instant now);
 }
@@ -5,6 +5,8 @@ import com.example.shortener.repository.AbuseEventRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class AbuseEventService {
@@ -18,4 +20,11 @@ public class AbuseEventService {
         abuseEventRepository.save(event);
     }
 
+    /**
+     * Record several abuse events in one batch.
+     */
+    public void recordEvents(List<AbuseEvent> events) {
+        abuseEventRepository.saveAll(events);
+    }
+
 }
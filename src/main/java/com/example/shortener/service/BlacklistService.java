@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Service to check if a URL is blacklisted (unsafe)
@@ -24,8 +25,19 @@ public class BlacklistService {
      * @return true if URL is blacklisted, false otherwise
      */
     public boolean isBlacklisted(String url) {
-        List<BlacklistUrl> blacklist = blacklistUrlRepository.findAll();
-        return blacklist.stream().anyMatch(b -> url.contains(b.getUrlPattern()));
+        return matcher().test(url);
+    }
+
+    /**
+     * Loads the blacklist once for checking many URLs.
+     *
+     * @return predicate that is true for blacklisted URLs
+     */
+    public Predicate<String> matcher() {
+        List<String> patterns = blacklistUrlRepository.findAll().stream()
+                .map(BlacklistUrl::getUrlPattern)
+                .toList();
+        return url -> patterns.stream().anyMatch(url::contains);
     }
 
     /**
@@ -0,0 +1,312 @@
+package com.example.shortener.service;
+
+import com.example.shortener.cache.RedisRedirectCache;
+import com.example.shortener.cache.ShortKeyBloomFilter;
+import com.example.shortener.config.ReadReplicaRouting;
+import com.example.shortener.entity.AbuseEvent;
+import com.example.shortener.entity.AbuseEventType;
+import com.example.shortener.model.BulkShortenResponse;
+import com.example.shortener.model.BulkShortenResult;
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.model.ShortenUrlRequest;
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.KeyGenerator;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import com.example.shortener.worker.UrlExpiryScheduler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Creates many short URLs per call.
+ *
+ * Requests are consumed from an iterator in chunks, so a streamed body is never
+ * held in memory as a whole. Per chunk, URLs are checked against the blacklist
+ * in one pass, custom aliases are checked with a single directory query, keys
+ * come from the key pool, rows are written with one JDBC batch and the new
+ * entries are pipelined into Redis. A chunk whose batch insert fails is retried
+ * row by row so that only the offending items are reported as failed; a row
+ * whose generated key turns out to be taken is retried with the next key.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkShortenService {
+
+    private static final int MAX_GENERATED_KEY_ATTEMPTS = 3;
+    private static final String INSERT_SQL = """
+            INSERT INTO urls (short_key, original_url, custom_alias, is_active, created_at, expires_at)
+            VALUES (?, ?, ?, true, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final BlacklistService blacklistService;
+    private final AbuseEventService abuseEventService;
+    private final KeyGenerator keyGenerator;
+    private final KeyPoolService keyPoolService;
+    private final RedisRedirectCache redisRedirectCache;
+    private final ShortKeyBloomFilter shortKeyBloomFilter;
+    private final ShortKeyDirectoryBackfillWorker directoryBackfill;
+    private final ReadReplicaRouting readReplicaRouting;
+    private final UrlExpiryScheduler urlExpiryScheduler;
+    private final AppProperties appProperties;
+
+    private record PendingUrl(int index, String shortKey, ShortenUrlRequest request, Instant createdAt) {
+    }
+
+    /**
+     * Shortens every request the iterator yields, up to {@code app.bulk.max-items}.
+     *
+     * @param requests  requests in order, e.g. streamed from the request body
+     * @param ipAddress client IP for abuse logging
+     * @param userAgent client User-Agent for abuse logging
+     * @param baseUrl   prefix of the returned short URLs
+     * @return per-item results in request order
+     */
+    public BulkShortenResponse shorten(Iterator<ShortenUrlRequest> requests, String ipAddress,
+                                       String userAgent, String baseUrl) {
+        AppProperties.Bulk props = appProperties.getBulk();
+        Predicate<String> blacklisted = blacklistService.matcher();
+        List<BulkShortenResult> results = new ArrayList<>();
+        List<ShortenUrlRequest> chunk = new ArrayList<>(props.getChunkSize());
+
+        int index = 0;
+        while (requests.hasNext() && index < props.getMaxItems()) {
+            chunk.add(requests.next());
+            index++;
+            if (chunk.size() == props.getChunkSize()) {
+                results.addAll(shortenChunk(chunk, index - chunk.size(), blacklisted, ipAddress, userAgent, baseUrl));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(shortenChunk(chunk, index - chunk.size(), blacklisted, ipAddress, userAgent, baseUrl));
+        }
+        if (requests.hasNext()) {
+            // Reported after the last chunk so results stay in request order
+            results.add(BulkShortenResult.failed(index, "Batch exceeds " + props.getMaxItems() + " items; the rest was not processed"));
+        }
+
+        int created = (int) results.stream().filter(BulkShortenResult::isCreated).count();
+        log.info("✅ Bulk shorten: {} created, {} failed", created, results.size() - created);
+        return new BulkShortenResponse(created, results.size() - created, results);
+    }
+
+    private List<BulkShortenResult> shortenChunk(List<ShortenUrlRequest> chunk, int firstIndex,
+                                                 Predicate<String> blacklisted, String ipAddress,
+                                                 String userAgent, String baseUrl) {
+        BulkShortenResult[] results = new BulkShortenResult[chunk.size()];
+        List<AbuseEvent> abuseEvents = new ArrayList<>();
+        Set<String> aliases = new HashSet<>();
+
+        // Validate the whole chunk before touching the database
+        for (int i = 0; i < chunk.size(); i++) {
+            ShortenUrlRequest request = chunk.get(i);
+            String error = validate(request, blacklisted, aliases);
+            if (error != null) {
+                results[i] = BulkShortenResult.failed(firstIndex + i, error);
+                if (request.getUrl() != null && blacklisted.test(request.getUrl())) {
+                    abuseEvents.add(blacklistViolation(request.getUrl(), ipAddress, userAgent));
+                }
+            }
+        }
+        if (!abuseEvents.isEmpty()) {
+            abuseEventService.recordEvents(abuseEvents);
+        }
+
+        Set<String> taken = findTakenAliases(aliases);
+        Instant createdAt = Instant.now();
+        List<PendingUrl> pending = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            ShortenUrlRequest request = chunk.get(i);
+            if (isCustom(request)) {
+                if (taken.contains(request.getCustomAlias())) {
+                    results[i] = BulkShortenResult.failed(firstIndex + i, "Alias already in use");
+                } else {
+                    pending.add(new PendingUrl(firstIndex + i, request.getCustomAlias(), request, createdAt));
+                }
+            } else {
+                pending.add(new PendingUrl(firstIndex + i, keyPoolService.nextKey(createdAt), request, createdAt));
+            }
+        }
+
+        List<PendingUrl> inserted = insert(pending, results, firstIndex);
+        publish(inserted);
+        for (PendingUrl row : inserted) {
+            results[row.index() - firstIndex] = BulkShortenResult.created(
+                    row.index(), row.shortKey(), String.format("%s/%s", baseUrl, row.shortKey()));
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @return the reason the request is rejected, or null if it is acceptable
+     */
+    private String validate(ShortenUrlRequest request, Predicate<String> blacklisted, Set<String> aliases) {
+        if (request == null || request.getUrl() == null || request.getUrl().isBlank()) {
+            return "Original URL cannot be empty";
+        }
+        if (blacklisted.test(request.getUrl())) {
+            return "URL is blacklisted and cannot be shortened";
+        }
+        if (isCustom(request)) {
+            String alias = request.getCustomAlias();
+            // Generated keys skip the existence check, so aliases must not share their format
+            if (keyGenerator.matchesGeneratedFormat(alias)) {
+                return "Aliases of exactly " + appProperties.getShortKeyLength()
+                        + " letters/digits are reserved for generated keys";
+            }
+            if (!aliases.add(alias)) {
+                return "Alias appears more than once in the batch";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCustom(ShortenUrlRequest request) {
+        return request.getCustomAlias() != null && !request.getCustomAlias().isBlank();
+    }
+
+    private Set<String> findTakenAliases(Set<String> aliases) {
+        if (aliases.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> taken = new HashSet<>(queryExisting("SELECT short_key FROM short_key_directory WHERE short_key = ANY(?)", aliases));
+        if (directoryBackfill.needsFallbackScan()) {
+            taken.addAll(queryExisting("SELECT short_key FROM urls WHERE short_key = ANY(?)", aliases));
+        }
+        return taken;
+    }
+
+    private List<String> queryExisting(String sql, Set<String> keys) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("text", keys.toArray()));
+            return ps;
+        }, (rs, i) -> rs.getString(1));
+    }
+
+    /**
+     * Inserts the chunk as one batch. If that fails, each row is retried on its
+     * own so one bad item doesn't fail the rest.
+     *
+     * @return the rows that were saved
+     */
+    private List<PendingUrl> insert(List<PendingUrl> rows, BulkShortenResult[] results, int firstIndex) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), this::bind));
+            return rows;
+        } catch (DataAccessException e) {
+            log.warn("Batch insert of {} URLs failed, retrying row by row: {}", rows.size(), e.getMessage());
+        }
+
+        List<PendingUrl> inserted = new ArrayList<>();
+        for (PendingUrl row : rows) {
+            PendingUrl saved = insertRow(row, results, firstIndex);
+            if (saved != null) {
+                inserted.add(saved);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Inserts one row. A generated key can still be held by an older custom alias
+     * or an imported key, so on a duplicate it is retried with the next key.
+     *
+     * @return the row as saved, or null if it failed
+     */
+    private PendingUrl insertRow(PendingUrl row, BulkShortenResult[] results, int firstIndex) {
+        boolean custom = isCustom(row.request());
+        for (int attempt = 1; ; attempt++) {
+            PendingUrl current = row;
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, current));
+                return row;
+            } catch (DuplicateKeyException e) {
+                if (custom || attempt == MAX_GENERATED_KEY_ATTEMPTS) {
+                    results[row.index() - firstIndex] = BulkShortenResult.failed(row.index(),
+                            custom ? "Alias already in use" : "URL could not be saved");
+                    return null;
+                }
+                log.warn("Generated key '{}' is already taken, trying the next one", row.shortKey());
+                row = new PendingUrl(row.index(), keyPoolService.nextKey(row.createdAt()), row.request(), row.createdAt());
+            } catch (DataAccessException e) {
+                log.warn("Failed to save bulk item {}: {}", row.index(), e.getMessage());
+                results[row.index() - firstIndex] = BulkShortenResult.failed(row.index(), "URL could not be saved");
+                return null;
+            }
+        }
+    }
+
+    private void bind(PreparedStatement ps, PendingUrl row) throws SQLException {
+        ShortenUrlRequest request = row.request();
+        ps.setString(1, row.shortKey());
+        ps.setString(2, request.getUrl());
+        ps.setBoolean(3, isCustom(request));
+        // Columns are UTC wall-clock timestamps, matching hibernate.jdbc.time_zone
+        ps.setObject(4, LocalDateTime.ofInstant(row.createdAt(), ZoneOffset.UTC));
+        ps.setObject(5, request.getExpiresAt() == null ? null
+                : LocalDateTime.ofInstant(request.getExpiresAt(), ZoneOffset.UTC));
+    }
+
+    /**
+     * Makes saved rows visible to the redirect path: one Redis pipeline plus the bloom filter.
+     */
+    private void publish(List<PendingUrl> inserted) {
+        if (inserted.isEmpty()) {
+            return;
+        }
+        Map<String, RedirectEntry> entries = new LinkedHashMap<>();
+        for (PendingUrl row : inserted) {
+            entries.put(row.shortKey(), new RedirectEntry(row.request().getUrl(), row.request().getExpiresAt(), true));
+        }
+        shortKeyBloomFilter.add(entries.keySet());
+        entries.keySet().forEach(readReplicaRouting::recordWrite);
+        entries.forEach((shortKey, entry) -> urlExpiryScheduler.schedule(shortKey, entry.expiresAt()));
+        try {
+            redisRedirectCache.putAll(entries);
+        } catch (Exception e) {
+            log.warn("Failed to cache {} bulk-created URLs: {}", entries.size(), e.getMessage());
+        }
+    }
+
+    private static AbuseEvent blacklistViolation(String url, String ipAddress, String userAgent) {
+        return AbuseEvent.builder()
+                .shortKey(null) // URL not yet created
+                .eventType(AbuseEventType.BLACKLIST_VIOLATION)
+                .ipAddress(ipAddress)
+                .userAgent(userAgent)
+                .referer(url) // store the attempted URL
+                .createdAt(Instant.now())
+                .build();
+    }
+}
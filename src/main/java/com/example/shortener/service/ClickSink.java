@@ -0,0 +1,16 @@
+package com.example.shortener.service;
+
+/**
+ * Where redirect clicks are counted, selected by {@code app.clicks.sink}:
+ * - kafka: buffered and published to the clicks topic, counted in Redis by
+ *   the consumer and flushed to Postgres (the default).
+ * - embedded: counted in process and flushed straight to Postgres, for
+ *   single-node deployments without Kafka.
+ */
+public interface ClickSink {
+
+    /**
+     * Records a click on a short key. Must never block the redirect.
+     */
+    void publishClick(String key, String ip, String ua, String referer);
+}
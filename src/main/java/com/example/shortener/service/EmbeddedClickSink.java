@@ -0,0 +1,153 @@
+package com.example.shortener.service;
+
+import com.example.shortener.properties.ClickProperties;
+import com.example.shortener.repository.ClickCountRepository;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process click counting for {@code app.clicks.sink=embedded}, replacing the
+ * Kafka publisher, the consumer and the Redis click hashes.
+ *
+ * A redirect bumps the {@link LongAdder} of its short key in the current map:
+ * a lock-free lookup plus a striped increment, so redirect threads don't contend
+ * (only a key's first click per interval inserts into the map). Every
+ * {@code embedded-flush-interval-ms} the map is swapped for an empty one, marked
+ * retired and its totals are added to {@code urls.click_count} in chunks. A
+ * thread that fetched the map just before the swap checks the mark after its
+ * increment and, if set, moves whatever the drain may have missed into the new
+ * map, so no click is lost however long the thread stalls. Chunks that fail go
+ * back into the current map.
+ *
+ * At most one interval of clicks is lost if the process dies; a clean shutdown
+ * flushes what is left.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.clicks", name = "sink", havingValue = "embedded")
+public class EmbeddedClickSink implements ClickSink {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final ClickCountRepository clickCountRepository;
+    private final ShortKeyDirectoryBackfillWorker directoryBackfill;
+    private final PlatformTransactionManager transactionManager;
+    private final ClickProperties clickProperties;
+    private final MeterRegistry meterRegistry;
+
+    /** One interval's counters. */
+    private static final class Generation {
+        final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+        volatile boolean retired;
+    }
+
+    private volatile Generation current = new Generation();
+    private Counter flushedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("clicks.embedded.pending", this, sink -> sink.current.counts.size())
+                .description("Short keys with clicks not yet flushed to the database")
+                .register(meterRegistry);
+        flushedCounter = flushCounter("flushed");
+        failedCounter = flushCounter("failed");
+        log.info("Embedded click sink enabled, flushing every {} ms", clickProperties.getEmbeddedFlushIntervalMs());
+    }
+
+    private Counter flushCounter(String outcome) {
+        return Counter.builder("clicks.embedded.clicks")
+                .description("Clicks written to the database by the embedded sink, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publishClick(String key, String ip, String ua, String referer) {
+        count(key, 1);
+    }
+
+    private void count(String key, long clicks) {
+        while (clicks > 0) {
+            Generation generation = current;
+            LongAdder adder = generation.counts.get(key);
+            if (adder == null) {
+                adder = generation.counts.computeIfAbsent(key, k -> new LongAdder());
+            }
+            adder.add(clicks);
+            // Retired meanwhile: its drain may have run already, so take back what is
+            // left in the counter and count it again in the current map
+            clicks = generation.retired ? adder.sumThenReset() : 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.clicks.embedded-flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Generation retired = current;
+        current = new Generation();
+        // Set after the swap, so a thread that sees it unset incremented before the drain below
+        retired.retired = true;
+
+        Map<String, Long> totals = new HashMap<>();
+        drain(retired.counts, totals);
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        List<Map.Entry<String, Long>> counts = new ArrayList<>(totals.entrySet());
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < counts.size(); i += CHUNK_SIZE) {
+            List<Map.Entry<String, Long>> chunk = counts.subList(i, Math.min(i + CHUNK_SIZE, counts.size()));
+            long clicks = chunk.stream().mapToLong(Map.Entry::getValue).sum();
+            try {
+                tx.executeWithoutResult(status ->
+                        clickCountRepository.addClicks(chunk, directoryBackfill.needsFallbackScan()));
+                flushedCounter.increment(clicks);
+            } catch (Exception e) {
+                // Keep the counts for the next flush
+                chunk.forEach(c -> count(c.getKey(), c.getValue()));
+                failedCounter.increment(clicks);
+                log.warn("Failed to flush clicks for {} URLs, retrying next flush: {}", chunk.size(), e.getMessage());
+            }
+        }
+        log.debug("Flushed clicks for {} URLs in {} ms", counts.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * sumThenReset takes each stripe atomically, so an increment racing the drain
+     * is either counted now or taken back by the thread that made it, never both.
+     */
+    private static void drain(Map<String, LongAdder> counts, Map<String, Long> totals) {
+        counts.forEach((key, adder) -> {
+            long clicks = adder.sumThenReset();
+            if (clicks > 0) {
+                totals.merge(key, clicks, Long::sum);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.shortener.service;
+
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.IdBasedKeyGenerator;
+import com.example.shortener.util.IdBlockAllocator;
+import com.example.shortener.util.KeyGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-node pool of pre-minted short keys.
+ *
+ * Whole id blocks are leased from the sequence and minted into key bodies in the
+ * background whenever the pool drops below its low watermark, so a shorten
+ * request just pops a body and prefixes its creation month. Each block held
+ * by the pool is journaled in {@code key_pool_leases}; this node heartbeats
+ * its rows and deletes them once every key of the block has been handed out.
+ * Rows left behind by a node that crashed (or stopped) are reclaimed after the
+ * lease timeout: the block is re-minted and bodies already used by a key in
+ * {@code urls} are dropped.
+ *
+ * A node only hands out keys of blocks it still owns: a heartbeat that no longer
+ * finds a block under this owner revokes it, and a block whose ownership was
+ * last confirmed more than half the lease timeout ago is not served from, so a
+ * stalled node stops well before another one can claim the block.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KeyPoolService {
+
+    private static final int RECOVERY_BATCH = 10;
+    private static final int MAX_RECOVERY_MONTHS = 62; // one full cycle of month prefixes
+
+    private static final String CLAIM_STALE_SQL = """
+            UPDATE key_pool_leases SET owner = ?, heartbeat_at = now()
+            WHERE block_start IN (
+                SELECT block_start FROM key_pool_leases
+                WHERE heartbeat_at < now() - make_interval(secs => ?)
+                ORDER BY block_start
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING block_start, block_end, leased_at
+            """;
+
+    private static final String HEARTBEAT_SQL = """
+            UPDATE key_pool_leases SET heartbeat_at = now()
+            WHERE owner = ? AND block_start = ANY(?)
+            RETURNING block_start
+            """;
+
+    private final AppProperties appProperties;
+    private final KeyGenerator keyGenerator;
+    private final IdBlockAllocator idBlockAllocator;
+    private final IdBasedKeyGenerator idBasedKeyGenerator;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor taskExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentLinkedQueue<PooledKey> pool = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> completedBlocks = new ConcurrentLinkedQueue<>();
+    private final Map<Long, BlockLease> heldLeases = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final String owner = ownerId();
+
+    private Counter pooledKeys;
+    private Counter inlineKeys;
+    private Counter recoveredKeys;
+
+    private record PooledKey(String body, BlockLease lease) {
+    }
+
+    /**
+     * A block this node serves keys from, with the last time its ownership was confirmed.
+     */
+    private static final class BlockLease {
+        final long blockStart;
+        final AtomicInteger remaining;
+        volatile long confirmedAtNanos;
+        volatile boolean revoked;
+
+        BlockLease(long blockStart, int keys, long confirmedAtNanos) {
+            this.blockStart = blockStart;
+            this.remaining = new AtomicInteger(keys);
+            this.confirmedAtNanos = confirmedAtNanos;
+        }
+
+        boolean servable(long nowNanos, long maxAgeNanos) {
+            return !revoked && nowNanos - confirmedAtNanos < maxAgeNanos;
+        }
+    }
+
+    private record StaleLease(long blockStart, long blockEnd, Instant leasedAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("url.keypool.depth", depth, AtomicInteger::get)
+                .description("Pre-minted short keys available on this node")
+                .register(meterRegistry);
+        pooledKeys = keysServed("pool");
+        inlineKeys = keysServed("inline");
+        recoveredKeys = Counter.builder("url.keypool.recovered")
+                .description("Unused keys reclaimed from stale block leases")
+                .register(meterRegistry);
+    }
+
+    private Counter keysServed(String source) {
+        return Counter.builder("url.keypool.keys")
+                .description("Short keys handed out, from the pool or generated inline when it was empty")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillOnStartup() {
+        triggerRefill();
+    }
+
+    /**
+     * Pops a pre-minted key in O(1), falling back to inline generation if the pool is empty.
+     *
+     * @param createdAt creation time the row will be saved with
+     */
+    public String nextKey(Instant createdAt) {
+        AppProperties.KeyPool props = appProperties.getKeyPool();
+        if (!props.isEnabled()) {
+            return keyGenerator.generate(createdAt);
+        }
+
+        long maxAgeNanos = TimeUnit.SECONDS.toNanos(props.getLeaseTimeoutSeconds()) / 2;
+        PooledKey pooled;
+        while ((pooled = pool.poll()) != null) {
+            if (depth.decrementAndGet() < props.getLowWatermark()) {
+                triggerRefill();
+            }
+            BlockLease lease = pooled.lease();
+            if (lease.servable(System.nanoTime(), maxAgeNanos)) {
+                if (lease.remaining.decrementAndGet() == 0) {
+                    heldLeases.remove(lease.blockStart);
+                    completedBlocks.offer(lease.blockStart);
+                }
+                pooledKeys.increment();
+                return keyGenerator.withPrefix(createdAt, pooled.body());
+            }
+            revoke(lease, "not confirmed within half the lease timeout");
+        }
+
+        inlineKeys.increment();
+        triggerRefill();
+        return keyGenerator.generate(createdAt);
+    }
+
+    /**
+     * Stops serving a block. Its remaining keys are discarded as they are popped,
+     * and since it is no longer heartbeated, its lease goes stale and the unused
+     * keys are reclaimed (by any node) after the lease timeout.
+     */
+    private void revoke(BlockLease lease, String reason) {
+        if (heldLeases.remove(lease.blockStart, lease)) {
+            log.warn("Key pool block {} revoked: {}", lease.blockStart, reason);
+        }
+        lease.revoked = true;
+    }
+
+    private void triggerRefill() {
+        if (!appProperties.getKeyPool().isEnabled() || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(this::refill);
+        } catch (TaskRejectedException e) {
+            refilling.set(false);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (depth.get() < appProperties.getKeyPool().getCapacity()) {
+                IdBlockAllocator.IdBlock block = idBlockAllocator.leaseBlock();
+                long confirmedAt = System.nanoTime();
+                jdbcTemplate.update(
+                        "INSERT INTO key_pool_leases (block_start, block_end, owner, leased_at) VALUES (?, ?, ?, ?)",
+                        block.start(), block.end(), owner, Timestamp.from(Instant.now()));
+                enqueue(block.start(), mint(block.start(), block.end()), confirmedAt);
+            }
+            log.debug("Key pool refilled to {} keys", depth.get());
+        } catch (Exception e) {
+            log.warn("Key pool refill failed at depth {}: {}", depth.get(), e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    /**
+     * Drops finished leases, heartbeats this node's leases and reclaims stale ones.
+     */
+    @Scheduled(fixedDelayString = "${app.key-pool.heartbeat-seconds:20}", timeUnit = TimeUnit.SECONDS)
+    public void maintainLeases() {
+        AppProperties.KeyPool props = appProperties.getKeyPool();
+        if (!props.isEnabled()) {
+            return;
+        }
+        try {
+            List<Long> completed = new ArrayList<>();
+            Long blockStart;
+            while ((blockStart = completedBlocks.poll()) != null) {
+                completed.add(blockStart);
+            }
+            if (!completed.isEmpty()) {
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement("DELETE FROM key_pool_leases WHERE block_start = ANY(?)");
+                    ps.setArray(1, con.createArrayOf("bigint", completed.toArray()));
+                    return ps;
+                });
+            }
+
+            heartbeat();
+
+            if (depth.get() < props.getCapacity()) {
+                recoverStaleLeases(props.getLeaseTimeoutSeconds());
+            }
+        } catch (Exception e) {
+            log.warn("Key pool lease maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Refreshes the leases of the blocks this node serves from. A block missing from
+     * the result was claimed by another node after our heartbeat lapsed, so its keys
+     * may already be in use there: it is revoked.
+     */
+    private void heartbeat() {
+        List<BlockLease> held = new ArrayList<>(heldLeases.values());
+        if (held.isEmpty()) {
+            return;
+        }
+        long sentAt = System.nanoTime();
+        Set<Long> refreshed = new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(HEARTBEAT_SQL);
+            ps.setString(1, owner);
+            ps.setArray(2, con.createArrayOf("bigint", held.stream().map(lease -> lease.blockStart).toArray()));
+            return ps;
+        }, (rs, i) -> rs.getLong(1)));
+
+        for (BlockLease lease : held) {
+            if (refreshed.contains(lease.blockStart)) {
+                lease.confirmedAtNanos = sentAt;
+            } else if (lease.remaining.get() > 0) {
+                revoke(lease, "lease no longer held by this node");
+            }
+        }
+    }
+
+    private void recoverStaleLeases(long leaseTimeoutSeconds) {
+        long claimedAt = System.nanoTime();
+        List<StaleLease> claimed = jdbcTemplate.query(CLAIM_STALE_SQL,
+                (rs, i) -> new StaleLease(rs.getLong("block_start"), rs.getLong("block_end"),
+                        rs.getTimestamp("leased_at").toInstant()),
+                owner, leaseTimeoutSeconds, RECOVERY_BATCH);
+
+        for (StaleLease lease : claimed) {
+            List<String> bodies = mint(lease.blockStart(), lease.blockEnd());
+            Set<String> used = findUsedBodies(bodies, lease.leasedAt());
+            List<String> unused = bodies.stream().filter(b -> !used.contains(b)).toList();
+
+            enqueue(lease.blockStart(), unused, claimedAt);
+            recoveredKeys.increment(unused.size());
+            log.info("♻️ Reclaimed {} unused keys from stale block [{}, {})",
+                    unused.size(), lease.blockStart(), lease.blockEnd());
+        }
+    }
+
+    /**
+     * A body can only have been used with the prefix of a month since the block
+     * was leased, so each candidate key is probed in the short key directory.
+     */
+    private Set<String> findUsedBodies(List<String> bodies, Instant leasedAt) {
+        // A day of slack absorbs clock and time zone differences between nodes
+        Instant since = leasedAt.minus(1, ChronoUnit.DAYS);
+        YearMonth month = YearMonth.from(since.atZone(ZoneOffset.UTC));
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < MAX_RECOVERY_MONTHS && !month.isAfter(current); i++, month = month.plusMonths(1)) {
+            Instant monthStart = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            bodies.forEach(body -> candidates.add(keyGenerator.withPrefix(monthStart, body)));
+        }
+
+        List<String> used = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT short_key FROM short_key_directory WHERE short_key = ANY(?)");
+            ps.setArray(1, con.createArrayOf("text", candidates.toArray()));
+            return ps;
+        }, (rs, i) -> rs.getString(1));
+
+        Set<String> usedBodies = new HashSet<>();
+        used.forEach(key -> usedBodies.add(key.substring(1)));
+        return usedBodies;
+    }
+
+    private List<String> mint(long start, long end) {
+        List<String> keys = new ArrayList<>((int) (end - start));
+        for (long id = start; id < end; id++) {
+            keys.add(idBasedKeyGenerator.generate(id));
+        }
+        return keys;
+    }
+
+    private void enqueue(long blockStart, List<String> keys, long confirmedAtNanos) {
+        if (keys.isEmpty()) {
+            completedBlocks.offer(blockStart);
+            return;
+        }
+        BlockLease lease = new BlockLease(blockStart, keys.size(), confirmedAtNanos);
+        heldLeases.put(blockStart, lease);
+        keys.forEach(key -> pool.offer(new PooledKey(key, lease)));
+        depth.addAndGet(keys.size());
+    }
+
+    private static String ownerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.shortener.service;
 
 import com.example.shortener.properties.AppProperties;
-import com.example.shortener.entity.Url;
+import com.example.shortener.model.RedirectEntry;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
@@ -40,7 +40,7 @@ public class QrCodeService {
         }
 
         // 2️⃣ Get URL from Redis or DB
-        Url url = urlService.getByShortKey(shortKey)
+        RedirectEntry entry = urlService.getByShortKey(shortKey)
                 .orElseThrow(() -> new RuntimeException("Short URL not found: " + shortKey));
 
         // 3️⃣ Build full URL
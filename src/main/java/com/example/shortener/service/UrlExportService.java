@@ -0,0 +1,184 @@
+package com.example.shortener.service;
+
+import com.example.shortener.config.ReadReplicaRouting;
+import com.example.shortener.util.Csv;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the {@code urls} table as CSV or NDJSON.
+ *
+ * Rows are read through a forward-only cursor ({@code fetchSize} inside a
+ * read-only transaction) and written straight to the output stream, so heap
+ * use is bounded by one fetch batch plus the write buffer. A slow client
+ * blocks the write, which in turn stops the cursor from fetching. The scan
+ * runs on a read replica when one is configured.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UrlExportService {
+
+    public enum Format {CSV, NDJSON}
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String COLUMNS = "short_key,original_url,click_count,is_active,created_at,expires_at,deleted_at";
+    private static final String EXPORT_SQL = "SELECT " + COLUMNS + " FROM urls";
+    private static final String EXPORT_LIVE_SQL = EXPORT_SQL + " WHERE deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final ReadReplicaRouting readReplicaRouting;
+
+    /**
+     * Writes every URL to {@code out}; the stream is finished but not closed.
+     *
+     * @param includeDeleted also export soft-deleted rows
+     * @return number of rows written
+     */
+    public long export(OutputStream out, Format format, boolean gzip, boolean includeDeleted) throws IOException {
+        long started = System.currentTimeMillis();
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        OutputStream target = new BufferedOutputStream(gzip ? gzipOut : out, BUFFER_SIZE);
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(target) : new NdjsonRowWriter(target);
+
+        AtomicLong rows = new AtomicLong();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        try {
+            readReplicaRouting.onReplica(() -> {
+                tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(includeDeleted ? EXPORT_SQL : EXPORT_LIVE_SQL);
+                    ps.setFetchSize(FETCH_SIZE);
+                    return ps;
+                }, rs -> {
+                    try {
+                        writer.write(rs);
+                    } catch (IOException e) {
+                        // Client went away; abandon the cursor
+                        throw new UncheckedIOException(e);
+                    }
+                    rows.incrementAndGet();
+                }));
+                return rows.get();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.finish();
+        target.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        log.info("📤 Exported {} URLs as {} in {} ms", rows.get(), format, System.currentTimeMillis() - started);
+        return rows.get();
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(COLUMNS);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Csv.quote(rs.getString("short_key")));
+            writer.write(',');
+            writer.write(Csv.quote(rs.getString("original_url")));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong("click_count")));
+            writer.write(',');
+            writer.write(Boolean.toString(rs.getBoolean("is_active")));
+            writer.write(',');
+            writer.write(nullToEmpty(timestamp(rs, "created_at")));
+            writer.write(',');
+            writer.write(nullToEmpty(timestamp(rs, "expires_at")));
+            writer.write(',');
+            writer.write(nullToEmpty(timestamp(rs, "deleted_at")));
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private boolean empty = true;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField("short_key", rs.getString("short_key"));
+            generator.writeStringField("original_url", rs.getString("original_url"));
+            generator.writeNumberField("click_count", rs.getLong("click_count"));
+            generator.writeBooleanField("is_active", rs.getBoolean("is_active"));
+            generator.writeStringField("created_at", timestamp(rs, "created_at"));
+            generator.writeStringField("expires_at", timestamp(rs, "expires_at"));
+            generator.writeStringField("deleted_at", timestamp(rs, "deleted_at"));
+            generator.writeEndObject();
+            empty = false;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+    /**
+     * Columns hold UTC wall-clock time (hibernate.jdbc.time_zone); exported as ISO-8601 instants.
+     */
+    private static String timestamp(ResultSet rs, String column) throws SQLException {
+        LocalDateTime value = rs.getObject(column, LocalDateTime.class);
+        return value == null ? null : value.toInstant(ZoneOffset.UTC).toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
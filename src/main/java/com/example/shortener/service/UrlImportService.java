@@ -0,0 +1,314 @@
+package com.example.shortener.service;
+
+import com.example.shortener.cache.ShortKeyBloomFilter;
+import com.example.shortener.model.ImportReport;
+import com.example.shortener.model.ImportRow;
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.Csv;
+import com.example.shortener.util.KeyGenerator;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import com.example.shortener.worker.UrlExpiryScheduler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Streams URLs from CSV or NDJSON into {@code urls} with PostgreSQL COPY.
+ *
+ * Input is read one row at a time and written in chunks of
+ * {@code app.url-import.chunk-size}, so memory use does not depend on the input
+ * size. Keys with the format of generated keys are imported like any other
+ * (legacy systems often used the same length); should one be minted again
+ * later, the insert hits the directory and the caller takes the next key.
+ * {@code app.url-import.reject-generated-keys} skips them as {@code reserved}
+ * instead. Per chunk, rows are checked against the blacklist (loaded once per
+ * import) and deduplicated against the short key directory in one query, any
+ * missing monthly partitions are created, and the rows go in through a single
+ * COPY. Each chunk commits on its own; a chunk the database rejects is
+ * re-filtered and retried once, then split until the rows it rejects are
+ * isolated and counted as failed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UrlImportService {
+
+    public enum Format {CSV, NDJSON}
+
+    private static final int MAX_KEY_LENGTH = 20; // urls.short_key is VARCHAR(20)
+    private static final String COPY_SQL = """
+            COPY urls (short_key, original_url, custom_alias, is_active, created_at, expires_at)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlacklistService blacklistService;
+    private final KeyGenerator keyGenerator;
+    private final ShortKeyBloomFilter shortKeyBloomFilter;
+    private final ShortKeyDirectoryBackfillWorker directoryBackfill;
+    private final AppProperties appProperties;
+    private final UrlExpiryScheduler urlExpiryScheduler;
+
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    /** Running totals of one import. */
+    private static final class Progress {
+        final long started = System.currentTimeMillis();
+        long lastLogged = started;
+        long read;
+        long imported;
+        long invalid;
+        long reserved;
+        long blacklisted;
+        long duplicates;
+        long failed;
+
+        ImportReport report() {
+            return new ImportReport(read, imported, invalid, reserved, blacklisted, duplicates, failed,
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Imports every row of the input.
+     *
+     * @param input  CSV with a header row, or one JSON object per line;
+     *               columns/fields are short_key, original_url, expires_at and created_at
+     * @param format input format
+     * @return counts of imported and rejected rows
+     */
+    public ImportReport importUrls(InputStream input, Format format) throws IOException {
+        AppProperties.UrlImport props = appProperties.getUrlImport();
+        Predicate<String> blacklisted = blacklistService.matcher();
+        Progress progress = new Progress();
+        List<ImportRow> chunk = new ArrayList<>(props.getChunkSize());
+
+        log.info("📥 Starting {} import", format);
+        try (MappingIterator<ImportRow> rows = reader(format).readValues(input)) {
+            while (rows.hasNextValue()) {
+                progress.read++;
+                try {
+                    chunk.add(rows.nextValue());
+                } catch (JsonProcessingException e) {
+                    // Bad value in an otherwise well-formed row, e.g. an unparseable timestamp
+                    progress.invalid++;
+                    continue;
+                }
+                if (chunk.size() == props.getChunkSize()) {
+                    importChunk(chunk, blacklisted, progress);
+                    chunk.clear();
+                    logProgress(progress, props.getProgressIntervalSeconds());
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, blacklisted, progress);
+        }
+
+        ImportReport report = progress.report();
+        log.info("✅ Import finished: {} read, {} imported, {} invalid, {} reserved, {} blacklisted, {} duplicates, {} failed in {} ms ({} rows/s)",
+                report.read(), report.imported(), report.invalid(), report.reserved(), report.blacklisted(),
+                report.duplicates(), report.failed(), report.elapsedMillis(), report.rowsPerSecond());
+        return report;
+    }
+
+    private ObjectReader reader(Format format) {
+        if (format == Format.NDJSON) {
+            return objectMapper.readerFor(ImportRow.class);
+        }
+        CsvMapper csvMapper = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .build();
+        return csvMapper.readerFor(ImportRow.class).with(CsvSchema.emptySchema().withHeader());
+    }
+
+    private void importChunk(List<ImportRow> chunk, Predicate<String> blacklisted, Progress progress) {
+        AppProperties.UrlImport props = appProperties.getUrlImport();
+        Instant now = Instant.now();
+        Set<String> seen = new HashSet<>();
+        List<ImportRow> accepted = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (row == null || isBlank(row.shortKey()) || isBlank(row.originalUrl())
+                    || row.shortKey().length() > MAX_KEY_LENGTH) {
+                progress.invalid++;
+            } else if (props.isRejectGeneratedKeys() && keyGenerator.matchesGeneratedFormat(row.shortKey())) {
+                progress.reserved++;
+            } else if (blacklisted.test(row.originalUrl())) {
+                progress.blacklisted++;
+            } else if (!seen.add(row.shortKey())) {
+                progress.duplicates++;
+            } else {
+                accepted.add(row.createdAt() != null ? row
+                        : new ImportRow(row.shortKey(), row.originalUrl(), row.expiresAt(), now));
+            }
+        }
+
+        List<ImportRow> rows = withoutExisting(accepted, progress);
+        if (rows.isEmpty()) {
+            return;
+        }
+        ensurePartitions(rows);
+        try {
+            copy(rows);
+        } catch (SQLException first) {
+            // Most likely a key taken concurrently, or a partition dropped since it was
+            // last seen; filter and check the partitions again, then retry once
+            log.warn("COPY of {} rows failed, retrying: {}", rows.size(), first.getMessage());
+            rows = withoutExisting(rows, progress);
+            knownPartitions.clear();
+            ensurePartitions(rows);
+            try {
+                copy(rows);
+            } catch (SQLException e) {
+                log.warn("COPY of {} rows failed again, splitting the chunk: {}", rows.size(), e.getMessage());
+                rows = copyInParts(rows, progress);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        progress.imported += rows.size();
+        shortKeyBloomFilter.add(rows.stream().map(ImportRow::shortKey).toList());
+        rows.forEach(row -> urlExpiryScheduler.schedule(row.shortKey(), row.expiresAt()));
+    }
+
+    /**
+     * Copies a chunk the database keeps rejecting in halves, recursively, so
+     * only the rows it rejects on their own (an over-long URL, say) are
+     * counted as failed.
+     *
+     * @return the rows that were written
+     */
+    private List<ImportRow> copyInParts(List<ImportRow> rows, Progress progress) {
+        if (rows.size() == 1) {
+            log.error("❌ Row with key '{}' rejected, skipping it", rows.get(0).shortKey());
+            progress.failed++;
+            return List.of();
+        }
+        List<ImportRow> copied = new ArrayList<>(rows.size());
+        int middle = rows.size() / 2;
+        for (List<ImportRow> part : List.of(rows.subList(0, middle), rows.subList(middle, rows.size()))) {
+            try {
+                copy(part);
+                copied.addAll(part);
+            } catch (SQLException e) {
+                copied.addAll(copyInParts(part, progress));
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Drops rows whose key already exists, with one directory query per chunk.
+     */
+    private List<ImportRow> withoutExisting(List<ImportRow> rows, Progress progress) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        List<String> keys = rows.stream().map(ImportRow::shortKey).toList();
+        Set<String> existing = new HashSet<>(findExisting("SELECT short_key FROM short_key_directory WHERE short_key = ANY(?)", keys));
+        if (directoryBackfill.needsFallbackScan()) {
+            existing.addAll(findExisting("SELECT short_key FROM urls WHERE short_key = ANY(?)", keys));
+        }
+        if (existing.isEmpty()) {
+            return rows;
+        }
+        progress.duplicates += existing.size();
+        return rows.stream().filter(row -> !existing.contains(row.shortKey())).toList();
+    }
+
+    private List<String> findExisting(String sql, Collection<String> keys) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("text", keys.toArray()));
+            return ps;
+        }, (rs, i) -> rs.getString(1));
+    }
+
+    private void ensurePartitions(List<ImportRow> rows) {
+        for (ImportRow row : rows) {
+            YearMonth month = YearMonth.from(row.createdAt().atZone(ZoneOffset.UTC));
+            if (!knownPartitions.contains(month)) {
+                jdbcTemplate.query("SELECT create_month_partition(?)", (RowCallbackHandler) rs -> {
+                }, month.atDay(1));
+                knownPartitions.add(month);
+            }
+        }
+    }
+
+    private void copy(List<ImportRow> rows) throws SQLException {
+        StringBuilder csv = new StringBuilder(rows.size() * 128);
+        for (ImportRow row : rows) {
+            csv.append(Csv.quote(row.shortKey())).append(',')
+                    .append(Csv.quote(row.originalUrl())).append(',')
+                    .append("false,true,")
+                    .append(timestamp(row.createdAt())).append(',')
+                    .append(timestamp(row.expiresAt())).append('\n');
+        }
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        try (Connection con = dataSource.getConnection()) {
+            con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            throw new SQLException("Failed to stream COPY data", e);
+        }
+    }
+
+    /**
+     * UTC wall-clock time, matching hibernate.jdbc.time_zone; unquoted empty is NULL.
+     */
+    private static String timestamp(Instant instant) {
+        return instant == null ? "" : LocalDateTime.ofInstant(instant, ZoneOffset.UTC).toString();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private void logProgress(Progress progress, long intervalSeconds) {
+        long now = System.currentTimeMillis();
+        if (now - progress.lastLogged < intervalSeconds * 1000) {
+            return;
+        }
+        progress.lastLogged = now;
+        ImportReport report = progress.report();
+        log.info("📥 Import progress: {} read, {} imported, {} rejected ({} rows/s)",
+                report.read(), report.imported(),
+                report.invalid() + report.reserved() + report.blacklisted() + report.duplicates() + report.failed(),
+                report.rowsPerSecond());
+    }
+}
@@ -1,22 +1,37 @@
 package com.example.shortener.service;
 
+import com.example.shortener.cache.CachedRedirect;
+import com.example.shortener.cache.LocalUrlCache;
+import com.example.shortener.cache.RedisRedirectCache;
+import com.example.shortener.cache.ShortKeyBloomFilter;
+import com.example.shortener.cache.metrics.CacheMetrics;
+import com.example.shortener.config.ReadReplicaRouting;
 import com.example.shortener.properties.AppProperties;
 import com.example.shortener.entity.Url;
-import com.example.shortener.kafka.EventPublisher;
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.repository.RedirectLookupRepository;
 import com.example.shortener.repository.UrlRepository;
 import com.example.shortener.util.KeyGenerator;
+import com.example.shortener.util.SingleFlight;
 import com.example.shortener.util.UrlValidator;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import com.example.shortener.worker.UrlExpiryScheduler;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Central service for URL management.
@@ -31,37 +46,60 @@ import java.util.Optional;
 @Slf4j
 public class UrlService {
 
+    private static final int MAX_GENERATED_KEY_ATTEMPTS = 3;
+
     private final KeyGenerator keyGenerator;
     private final UrlValidator urlValidator;
-    private final EventPublisher eventPublisher;
+    private final ClickSink clickSink;
     private final UrlRepository urlRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedirectLookupRepository redirectLookupRepository;
+    private final RedisRedirectCache redisRedirectCache;
     private final AppProperties appProperties;
+    private final LocalUrlCache localUrlCache;
+    private final CacheMetrics cacheMetrics;
+    private final ShortKeyBloomFilter shortKeyBloomFilter;
+    private final ThreadPoolTaskExecutor taskExecutor;
+    private final KeyPoolService keyPoolService;
+    private final ShortKeyDirectoryBackfillWorker directoryBackfill;
+    private final ReadReplicaRouting readReplicaRouting;
+    private final UrlExpiryScheduler urlExpiryScheduler;
+
+    private final SingleFlight<String, Optional<RedirectEntry>> dbLoads = new SingleFlight<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
 
-    private static final String URL_CACHE_PREFIX = "url:";
-    private static final int MAX_GENERATION_ATTEMPTS = 5;
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("url.cache.loads.in_flight", dbLoads, SingleFlight::inFlightCount)
+                .description("Distinct short keys currently being loaded from the database")
+                .register(cacheMetrics.getRegistry());
+    }
 
     /**
-     * Retrieves a URL entity by its short key.
-     * Uses caching for better performance.
+     * Retrieves the redirect entry for a short key, whether active or not.
+     * Checks the local cache, then Redis, then the database.
      *
      * @param shortKey the shortened key
-     * @return Optional containing the found URL, if any
+     * @return Optional containing the found entry, if any
      */
-    public Optional<Url> getByShortKey(String shortKey) {
-        String cacheKey = URL_CACHE_PREFIX + shortKey;
+    public Optional<RedirectEntry> getByShortKey(String shortKey) {
+        if (!shortKeyBloomFilter.mightContain(shortKey)) {
+            return Optional.empty();
+        }
 
         try {
+            Optional<RedirectEntry> localEntry = localUrlCache.get(shortKey);
+            if (localEntry.isPresent()) {
+                return localEntry;
+            }
+
             // Try cache first
-            Optional<Url> cachedUrl = getFromCache(cacheKey);
-            if (cachedUrl.isPresent()) {
-                return cachedUrl;
+            Optional<RedirectEntry> cachedEntry = getFromCache(shortKey);
+            if (cachedEntry.isPresent()) {
+                return cachedEntry;
             }
 
             // Cache miss - query database
-            Optional<Url> dbUrl = urlRepository.findByShortKeyAndDeletedAtIsNull(shortKey);
-            dbUrl.ifPresent(url -> cacheUrl(cacheKey, url));
-            return dbUrl;
+            return loadFromDatabase(shortKey);
 
         } catch (Exception e) {
             log.error("Error fetching key '{}': {}", shortKey, e.getMessage());
@@ -79,21 +117,24 @@ public class UrlService {
      * @param userAgent   client User-Agent for abuse logging
      * @return the saved {@link Url} entity
      */
-    @Transactional
     public Url createShortUrl(String originalUrl, String customAlias, Instant expiresAt,
                               String ipAddress, String userAgent) {
 
         // Validate URL with abuse detection
         urlValidator.validate(originalUrl, ipAddress, userAgent);
 
-        if (customAlias != null && !customAlias.isBlank()) {
-            return createCustomAlias(originalUrl, customAlias, expiresAt);
-        }
-        return createGeneratedAlias(originalUrl, expiresAt);
+        Url url = (customAlias != null && !customAlias.isBlank())
+                ? createCustomAlias(originalUrl, customAlias, expiresAt)
+                : createGeneratedAlias(originalUrl, expiresAt);
+
+        shortKeyBloomFilter.add(url.getShortKey());
+        readReplicaRouting.recordWrite(url.getShortKey());
+        urlExpiryScheduler.schedule(url.getShortKey(), url.getExpiresAt());
+        return url;
     }
 
     /**
-     * Publishes a click-tracking event to Kafka.
+     * Records a click with the configured {@link ClickSink}.
      *
      * @param shortKey the clicked short key
      * @param ip       client IP
@@ -102,29 +143,40 @@ public class UrlService {
      */
     public void publishClickEvent(String shortKey, String ip, String ua, String referer) {
         try {
-            eventPublisher.publishClick(shortKey, ip, ua, referer);
+            clickSink.publishClick(shortKey, ip, ua, referer);
         } catch (Exception e) {
             log.warn("Failed to publish click event for '{}': {}", shortKey, e.getMessage());
         }
     }
 
     /**
-     * Resolves the given short key to its corresponding URL entity.
-     * Includes active status validation and caching.
+     * Resolves the given short key to its redirect entry.
+     * Includes active status validation and two-tier caching
+     * (in-process first, then Redis).
      *
      * @param shortKey the short key to resolve
-     * @return an Optional containing the resolved {@link Url}, or empty if not found or inactive
+     * @return an Optional containing the resolved {@link RedirectEntry}, or empty if not found or inactive
      */
-    public Optional<Url> resolve(String shortKey) {
-        String cacheKey = URL_CACHE_PREFIX + shortKey;
+    public Optional<RedirectEntry> resolve(String shortKey) {
+        // Keys that were never issued are rejected without any I/O
+        if (!shortKeyBloomFilter.mightContain(shortKey)) {
+            log.debug("❌ Short key '{}' rejected by filter", shortKey);
+            return Optional.empty();
+        }
+
+        // Hot keys are served without leaving the JVM
+        Optional<RedirectEntry> localEntry = localUrlCache.get(shortKey);
+        if (localEntry.isPresent()) {
+            return localEntry.filter(urlValidator::isActive);
+        }
 
         // Try cache first
-        Optional<Url> cachedUrl = getFromCache(cacheKey);
-        if (cachedUrl.isPresent()) {
-            Url url = cachedUrl.get();
-            if (urlValidator.isActive(url)) {
+        Optional<RedirectEntry> cachedEntry = getFromCache(shortKey);
+        if (cachedEntry.isPresent()) {
+            RedirectEntry entry = cachedEntry.get();
+            if (urlValidator.isActive(entry)) {
                 log.debug("✅ Cache hit for active URL '{}'", shortKey);
-                return cachedUrl;
+                return cachedEntry;
             } else {
                 log.debug("❌ Cached URL '{}' is inactive", shortKey);
                 return Optional.empty();
@@ -132,103 +184,191 @@ public class UrlService {
         }
 
         // Cache miss - query database
-        log.debug("Querying DB for key '{}'", shortKey);
-        Optional<Url> dbUrl = urlRepository.findByShortKeyAndDeletedAtIsNull(shortKey)
+        Optional<RedirectEntry> dbEntry = loadFromDatabase(shortKey)
                 .filter(urlValidator::isActive);
 
-        if (dbUrl.isPresent()) {
-            Url url = dbUrl.get();
-            cacheUrl(cacheKey, url);
+        if (dbEntry.isPresent()) {
             log.debug("✅ Found and cached active URL '{}'", shortKey);
         } else {
             log.debug("❌ URL not found or inactive: '{}'", shortKey);
         }
 
-        return dbUrl;
+        return dbEntry;
+    }
+
+    /**
+     * Loads a key from the database and caches it. Concurrent misses for the
+     * same key are coalesced into a single query whose result they all share.
+     */
+    private Optional<RedirectEntry> loadFromDatabase(String shortKey) {
+        SingleFlight.Result<Optional<RedirectEntry>> result = dbLoads.execute(shortKey, () -> {
+            log.debug("Querying DB for key '{}'", shortKey);
+            long started = System.nanoTime();
+            Optional<RedirectEntry> dbEntry = findActiveEntry(shortKey);
+            int loadMillis = (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            dbEntry.ifPresent(entry -> cacheEntry(shortKey, entry, loadMillis));
+            return dbEntry;
+        });
+        if (result.coalesced()) {
+            cacheMetrics.recordCoalesced();
+        }
+        return result.value();
+    }
+
+    /**
+     * Generated keys carry their creation month, so the lookup only touches that
+     * month's partition. Custom aliases, keys minted before the prefix existed and
+     * prefixes that wrapped around are located through the short key directory.
+     * Lookups go to a read replica when one is configured, and to the primary
+     * for keys this node just created or that the replica doesn't have.
+     */
+    private Optional<RedirectEntry> findActiveEntry(String shortKey) {
+        if (readReplicaRouting.isEnabled() && !readReplicaRouting.isRecentlyWritten(shortKey)) {
+            Optional<RedirectEntry> entry = readReplicaRouting.onReplica(() -> findActiveEntryOnRoute(shortKey));
+            if (entry.isPresent()) {
+                return entry;
+            }
+            // The replica may just be lagging behind the primary
+        }
+        return findActiveEntryOnRoute(shortKey);
+    }
+
+    private Optional<RedirectEntry> findActiveEntryOnRoute(String shortKey) {
+        Optional<YearMonth> month = keyGenerator.creationMonth(shortKey, Instant.now());
+        if (month.isPresent()) {
+            Instant from = month.get().atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant to = month.get().plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            Optional<RedirectEntry> entry = redirectLookupRepository.findInRange(shortKey, from, to);
+            if (entry.isPresent()) {
+                return entry;
+            }
+        }
+
+        Optional<RedirectEntry> entry = redirectLookupRepository.findViaDirectory(shortKey);
+        if (entry.isPresent() || !directoryBackfill.needsFallbackScan()) {
+            return entry;
+        }
+        return redirectLookupRepository.findInAnyPartition(shortKey);
+    }
+
+    /**
+     * Reloads a key from the database on the task executor. At most one refresh
+     * per key is in flight; if the executor is saturated the stale entry is simply
+     * served until the next read tries again.
+     */
+    private void refreshAsync(String shortKey) {
+        if (!refreshing.add(shortKey)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    if (loadFromDatabase(shortKey).isEmpty()) {
+                        invalidateCache(shortKey);
+                    }
+                } catch (Exception e) {
+                    log.warn("Background refresh failed for key '{}': {}", shortKey, e.getMessage());
+                } finally {
+                    refreshing.remove(shortKey);
+                }
+            });
+            cacheMetrics.recordRefresh(true);
+        } catch (TaskRejectedException e) {
+            refreshing.remove(shortKey);
+            cacheMetrics.recordRefresh(false);
+        }
     }
 
     private Url createCustomAlias(String originalUrl, String alias, Instant expiresAt) {
-        if (urlRepository.existsByShortKey(alias)) {
+        // Generated keys skip the existence check, so aliases must not share their format
+        if (keyGenerator.matchesGeneratedFormat(alias)) {
+            throw new IllegalArgumentException("Aliases of exactly " + appProperties.getShortKeyLength()
+                    + " letters/digits are reserved for generated keys");
+        }
+        if (urlRepository.existsInDirectory(alias)
+                || (directoryBackfill.needsFallbackScan() && urlRepository.existsByShortKey(alias))) {
             log.warn("Custom alias '{}' already exists", alias);
             throw new IllegalArgumentException("Alias already in use");
         }
 
-        Url url = buildUrl(originalUrl, alias, true, expiresAt);
+        Url url = buildUrl(originalUrl, alias, true, Instant.now(), expiresAt);
         Url saved = saveAndCache(url);
         log.info("✅ Saved custom alias '{}'", saved.getShortKey());
         return saved;
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    /**
+     * Keys are pre-minted from leased id blocks, so they never collide with each
+     * other, but a custom alias created before aliases of the generated format were
+     * rejected, or an imported key, can still hold one. The directory rejects the
+     * insert in that case and the next key is tried.
+     */
     private Url createGeneratedAlias(String originalUrl, Instant expiresAt) {
-        for (int attempt = 1; attempt <= 5; attempt++) {
-            String key = keyGenerator.generate();  // e.g., "aBc123"
-            // Check if key exists (potential race condition here!)
-            if (urlRepository.existsByShortKey(key)) {
-                continue; // Try another key
+        for (int attempt = 1; ; attempt++) {
+            // The key's month prefix must match the partition the row lands in
+            Instant createdAt = Instant.now();
+            String key = keyPoolService.nextKey(createdAt);
+            try {
+                // Flushed in its own transaction, so a taken key fails here and not at commit
+                return urlRepository.saveAndFlush(buildUrl(originalUrl, key, false, createdAt, expiresAt));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == MAX_GENERATED_KEY_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Generated key '{}' is already taken, trying the next one", key);
             }
-            Url url = buildUrl(originalUrl, key, false, expiresAt);
-            return urlRepository.save(url);
         }
-        throw new IllegalStateException("Couldn't generate unique key");
     }
 
     private Url saveAndCache(Url url) {
         Url saved = urlRepository.save(url);
-        String cacheKey = URL_CACHE_PREFIX + saved.getShortKey();
-        cacheUrl(cacheKey, saved);
+        cacheEntry(saved.getShortKey(), RedirectEntry.from(saved), 0);
         return saved;
     }
 
-    private Url buildUrl(String originalUrl, String shortKey, boolean custom, Instant expiresAt) {
+    private Url buildUrl(String originalUrl, String shortKey, boolean custom, Instant createdAt, Instant expiresAt) {
         return Url.builder()
                 .shortKey(shortKey)
                 .originalUrl(originalUrl)
                 .customAlias(custom)
                 .isActive(true)
-                .createdAt(Instant.now())
+                .createdAt(createdAt)
                 .expiresAt(expiresAt)
                 .build();
     }
 
-    private Optional<Url> getFromCache(String cacheKey) {
-        try {
-            Object cached = redisTemplate.opsForValue().get(cacheKey);
-            if (cached instanceof Url) {
-                return Optional.of((Url) cached);
+    /**
+     * Reads the Redis tier, promotes hits into the local tier and schedules a
+     * background refresh when the entry is stale or due for early refresh.
+     */
+    private Optional<RedirectEntry> getFromCache(String shortKey) {
+        Optional<CachedRedirect> cached = redisRedirectCache.get(shortKey);
+        cached.ifPresent(c -> {
+            localUrlCache.put(shortKey, c.entry());
+            if (redisRedirectCache.shouldRefresh(c, System.currentTimeMillis())) {
+                refreshAsync(shortKey);
             }
-        } catch (Exception e) {
-            log.warn("Cache read error for key '{}': {}", cacheKey, e.getMessage());
-        }
-        return Optional.empty();
+        });
+        return cached.map(CachedRedirect::entry);
     }
 
-    private void cacheUrl(String cacheKey, Url url) {
-        try {
-            redisTemplate.opsForValue().set(
-                    cacheKey,
-                    url,
-                    Duration.ofSeconds(appProperties.getCacheTtlSeconds())
-            );
-            log.debug("🧠 Cached key '{}' for {}s",
-                    url.getShortKey(), appProperties.getCacheTtlSeconds());
-        } catch (Exception e) {
-            log.warn("Failed to cache key '{}': {}", url.getShortKey(), e.getMessage());
-        }
+    private void cacheEntry(String shortKey, RedirectEntry entry, int loadMillis) {
+        localUrlCache.put(shortKey, entry);
+        redisRedirectCache.put(shortKey, entry, loadMillis);
     }
 
     /**
-     * Invalidates the cache for a specific short key
+     * Invalidates the cache for a specific short key on every tier and node
      */
     public void invalidateCache(String shortKey) {
         try {
-            String cacheKey = URL_CACHE_PREFIX + shortKey;
-            Boolean deleted = redisTemplate.delete(cacheKey);
-            if (deleted) {
+            if (redisRedirectCache.delete(shortKey)) {
                 log.debug("🗑️ Invalidated cache for key '{}'", shortKey);
             }
         } catch (Exception e) {
             log.warn("Failed to invalidate cache for key '{}': {}", shortKey, e.getMessage());
         }
+        // Broadcast after Redis is cleared so peers don't re-read the stale entry
+        localUrlCache.invalidate(shortKey);
     }
 }
\ No newline at end of file
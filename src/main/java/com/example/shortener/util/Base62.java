@@ -18,6 +18,17 @@ public class Base62 {
         return sb.reverse().toString();
     }
 
+    public static char digit(int value) {
+        return ALPHABET.charAt(value);
+    }
+
+    /**
+     * @return the value of a single Base62 digit, or -1 if the character is not one
+     */
+    public static int valueOf(char c) {
+        return ALPHABET.indexOf(c);
+    }
+
     public static String encode(byte[] bytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : bytes) {
@@ -0,0 +1,54 @@
+package com.example.shortener.util;
+
+import com.example.shortener.properties.ClickProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Layout of the sharded Redis click counters.
+ *
+ * Counts for a short key always go to the same {@code clicks:{n}} hash, picked
+ * by a stable hash of the key. The braces make {@code n} the cluster hash tag,
+ * so shards spread over the cluster while each shard's snapshot and registry
+ * keys stay in its slot.
+ */
+@Component
+public class ClickShards {
+
+    private final String[] hashKeys;
+
+    public ClickShards(ClickProperties clickProperties) {
+        int count = Math.max(1, clickProperties.getShards());
+        hashKeys = new String[count];
+        for (int i = 0; i < count; i++) {
+            hashKeys[i] = "clicks:{" + i + "}";
+        }
+    }
+
+    public int count() {
+        return hashKeys.length;
+    }
+
+    /**
+     * Shard of a short key. String.hashCode is fixed by the language spec, so every
+     * node agrees; the extra mixing spreads near-identical keys.
+     */
+    public int shardOf(String shortKey) {
+        int h = shortKey.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return Math.floorMod(h, hashKeys.length);
+    }
+
+    public String hashKey(int shard) {
+        return hashKeys[shard];
+    }
+
+    public String snapshotPrefix(int shard) {
+        return hashKeys[shard] + ":snapshot:";
+    }
+
+    public String registryKey(int shard) {
+        return hashKeys[shard] + ":snapshots";
+    }
+}
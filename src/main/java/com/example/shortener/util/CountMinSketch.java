@@ -0,0 +1,83 @@
+package com.example.shortener.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Count-Min sketch for approximate per-key frequencies in fixed memory.
+ * Estimates never undercount; {@link #halve()} ages all counters so the sketch
+ * tracks recent rather than all-time traffic.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int width;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length);
+        }
+        this.depth = depth;
+        this.width = Math.max(16, width);
+        this.counters = new AtomicLongArray(this.depth * this.width);
+    }
+
+    /**
+     * Adds one occurrence of the key and returns its new estimated count.
+     */
+    public long increment(String key) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves every counter (exponential decay).
+     */
+    public void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, v -> v >> 1);
+        }
+    }
+
+    private int index(int row, long hash) {
+        long h = mix(hash ^ SEEDS[row]);
+        return row * width + (int) Math.floorMod(h, (long) width);
+    }
+
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.shortener.util;
+
+/**
+ * Minimal RFC 4180 field encoding, as read by PostgreSQL COPY (FORMAT csv).
+ */
+public final class Csv {
+
+    private Csv() {}
+
+    /**
+     * @return the value double-quoted with embedded quotes doubled, or an empty field for null
+     */
+    public static String quote(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
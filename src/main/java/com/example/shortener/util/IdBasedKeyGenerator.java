@@ -1,21 +1,112 @@
 package com.example.shortener.util;
 
-import com.example.shortener.util.Base62;
+import com.example.shortener.properties.AppProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+
 /**
- * Generates short keys from numeric IDs using Base62.
+ * Generates the body of short keys from numeric IDs using Base62.
+ *
+ * Bodies are always one character shorter than {@code app.short-key-length};
+ * {@link KeyGenerator} prepends the creation-month prefix. When scrambling is
+ * enabled the id is first run through a keyed Feistel permutation of the key
+ * space (with cycle-walking), so consecutive ids map to unrelated-looking keys
+ * while staying collision-free. Scrambling refuses to start without a secret of
+ * its own ({@code KEY_SECRET}).
  */
 @Component
+@RequiredArgsConstructor
 public class IdBasedKeyGenerator {
 
+    private static final int ROUNDS = 4;
+    private static final int MAX_BODY_LENGTH = 10; // 62^10 still fits in a long
+    private static final String PLACEHOLDER_SECRET = "change-me";
+
+    private final AppProperties appProperties;
+
+    private int bodyLength;
+    private long keySpace;
+    private int halfBits;
+    private long halfMask;
+    private long[] roundKeys;
+
+    @PostConstruct
+    public void init() {
+        bodyLength = appProperties.getShortKeyLength() - 1;
+        if (bodyLength < 1 || bodyLength > MAX_BODY_LENGTH) {
+            throw new IllegalStateException("app.short-key-length must be between 2 and " + (MAX_BODY_LENGTH + 1));
+        }
+        keySpace = 1;
+        for (int i = 0; i < bodyLength; i++) {
+            keySpace *= 62;
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(keySpace - 1);
+        halfBits = (bits + 1) / 2;
+        halfMask = (1L << halfBits) - 1;
+
+        String secret = appProperties.getKeyGenerator().getSecret();
+        if (appProperties.getKeyGenerator().isScramble()
+                && (secret == null || secret.isBlank() || secret.equals(PLACEHOLDER_SECRET))) {
+            // A known key makes the permutation reversible, so keys would be guessable again
+            throw new IllegalStateException("app.key-generator.secret (KEY_SECRET) must be set when scrambling is enabled");
+        }
+        roundKeys = new long[ROUNDS];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (byte b : (secret == null ? "" : secret).getBytes(StandardCharsets.UTF_8)) {
+            seed = mix(seed ^ b);
+        }
+        for (int i = 0; i < ROUNDS; i++) {
+            seed = mix(seed + i);
+            roundKeys[i] = seed;
+        }
+    }
+
     /**
-     * Converts a numeric ID to Base62 short key.
+     * Converts a numeric ID to a fixed-length Base62 key body.
      *
-     * @param id auto-increment ID from database
-     * @return Base62 encoded key
+     * @param id unique id, e.g. from {@link IdBlockAllocator}
+     * @return Base62 encoded body
      */
     public String generate(long id) {
-        return Base62.encode(id);
+        if (id < 0 || id >= keySpace) {
+            throw new IllegalStateException("Short key space exhausted for length " + (bodyLength + 1));
+        }
+        long value = appProperties.getKeyGenerator().isScramble() ? permute(id) : id;
+        String encoded = Base62.encode(value);
+        return "0".repeat(bodyLength - encoded.length()) + encoded;
+    }
+
+    /**
+     * Bijection on [0, keySpace): a balanced Feistel network over the smallest
+     * even bit width covering the space, cycle-walked until the result falls inside it.
+     */
+    private long permute(long value) {
+        do {
+            value = feistel(value);
+        } while (value >= keySpace);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long next = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.example.shortener.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out unique numeric ids from blocks leased from a Postgres sequence.
+ *
+ * Each {@code nextval('short_key_id_seq')} reserves a contiguous block of ids
+ * (the sequence's INCREMENT BY) for this node. Ids are then handed out
+ * lock-free from memory; only the thread that exhausts a block goes back to
+ * the database. Ids left in a block when the node stops are simply skipped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdBlockAllocator {
+
+    private static final String SEQUENCE = "short_key_id_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AtomicReference<Block> current = new AtomicReference<>();
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private volatile long blockSize;
+
+    private record Block(long end, AtomicLong next) {
+    }
+
+    /**
+     * A whole block of ids, [start, end), reserved for the caller.
+     */
+    public record IdBlock(long start, long end) {
+    }
+
+    public long nextId() {
+        while (true) {
+            Block block = current.get();
+            if (block != null) {
+                long id = block.next().getAndIncrement();
+                if (id < block.end()) {
+                    return id;
+                }
+            }
+            leaseIfCurrent(block);
+        }
+    }
+
+    /**
+     * Leases a fresh block for the caller to hand out itself (e.g. to pre-mint keys).
+     */
+    public IdBlock leaseBlock() {
+        Block block = lease();
+        return new IdBlock(block.next().get(), block.end());
+    }
+
+    private void leaseIfCurrent(Block exhausted) {
+        leaseLock.lock();
+        try {
+            // Another thread may already have leased a fresh block
+            if (current.get() == exhausted) {
+                current.set(lease());
+            }
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    private Block lease() {
+        if (blockSize == 0) {
+            blockSize = jdbcTemplate.queryForObject(
+                    "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?",
+                    Long.class, SEQUENCE);
+        }
+        Long start = jdbcTemplate.queryForObject("SELECT nextval(?)", Long.class, SEQUENCE);
+        log.debug("Leased id block [{}, {})", start, start + blockSize);
+        return new Block(start + blockSize, new AtomicLong(start));
+    }
+}
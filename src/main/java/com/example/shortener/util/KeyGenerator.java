@@ -1,26 +1,84 @@
 package com.example.shortener.util;
 
+import com.example.shortener.properties.AppProperties;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.nio.ByteBuffer;
-import java.util.UUID;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
 /**
- * Generates unique short keys using Base62 encoding.
- * Uses UUID.randomUUID() for randomness and uniqueness.
+ * Generates unique short keys of the configured length.
+ * Ids come from blocks leased from a database sequence, so keys never collide
+ * with each other and no existence check is needed before saving. An older
+ * custom alias or an imported key of the same shape can still hold one; the
+ * short key directory then rejects the insert and callers take the next key.
+ *
+ * The first character encodes the UTC month the key was created in, which is
+ * also the monthly partition of {@code urls} holding the row. The prefix cycles
+ * every 62 months, so it is decoded to the most recent matching month.
  */
 @Component
+@RequiredArgsConstructor
 public class KeyGenerator {
 
+    /** Month of the first {@code urls} partition (see V2 migration). */
+    private static final YearMonth PREFIX_EPOCH = YearMonth.of(2025, 11);
+    private static final int PREFIX_CYCLE = 62;
+
+    private final IdBlockAllocator idBlockAllocator;
+    private final IdBasedKeyGenerator idBasedKeyGenerator;
+    private final AppProperties appProperties;
+
+    /**
+     * Generates the next Base62 key, e.g. "aB3dE7x" for a length of 7.
+     *
+     * @param createdAt creation time the row will be saved with
+     */
+    public String generate(Instant createdAt) {
+        return withPrefix(createdAt, idBasedKeyGenerator.generate(idBlockAllocator.nextId()));
+    }
+
+    /**
+     * Completes a pre-minted key body with the month prefix for {@code createdAt}.
+     */
+    public String withPrefix(Instant createdAt, String body) {
+        long months = ChronoUnit.MONTHS.between(PREFIX_EPOCH, YearMonth.from(createdAt.atZone(ZoneOffset.UTC)));
+        return Base62.digit((int) Math.floorMod(months, PREFIX_CYCLE)) + body;
+    }
+
+    /**
+     * Decodes the creation month of a generated key.
+     *
+     * @return the month, or empty if the key cannot be a generated one
+     */
+    public Optional<YearMonth> creationMonth(String key, Instant now) {
+        if (!matchesGeneratedFormat(key)) {
+            return Optional.empty();
+        }
+        YearMonth current = YearMonth.from(now.atZone(ZoneOffset.UTC));
+        long currentIndex = ChronoUnit.MONTHS.between(PREFIX_EPOCH, current);
+        long age = Math.floorMod(currentIndex - Base62.valueOf(key.charAt(0)), PREFIX_CYCLE);
+        YearMonth month = current.minusMonths(age);
+        return month.isBefore(PREFIX_EPOCH) ? Optional.empty() : Optional.of(month);
+    }
+
     /**
-     * Generates a Base62-encoded key using UUID.
-     * The result is typically ~22 characters long.
+     * @return true if the string has the shape of a generated key and could
+     * therefore collide with one
      */
-    public String generate() {
-        UUID uuid = UUID.randomUUID();
-        // Convert UUID to 16-byte array
-        ByteBuffer buffer = ByteBuffer.allocate(16);
-        buffer.putLong(uuid.getMostSignificantBits());
-        buffer.putLong(uuid.getLeastSignificantBits());
-        return Base62.encode(buffer.array());
+    public boolean matchesGeneratedFormat(String key) {
+        if (key.length() != appProperties.getShortKeyLength()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (Base62.valueOf(key.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
     }
-}
\ No newline at end of file
+}
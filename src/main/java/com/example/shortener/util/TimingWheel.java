@@ -0,0 +1,116 @@
+package com.example.shortener.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: three levels of 64 slots each, so with a tick of
+ * {@code tickMillis} it schedules up to 64³ ticks ahead in O(1) per item.
+ * Items further out wait in an overflow list until the top level wraps.
+ * When a higher-level slot comes due, its items cascade down to a finer level.
+ *
+ * Items never fire before their deadline; they fire on the first
+ * {@link #advance} at or after it. Thread-safe.
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final long MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    private record Entry<T>(T item, long tick) {
+    }
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private List<Entry<T>> overflow = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * @return false if the deadline has already passed; the item was not added
+     */
+    public synchronized boolean add(T item, long deadlineMillis) {
+        long tick = Math.ceilDiv(deadlineMillis, tickMillis);
+        if (tick <= currentTick) {
+            return false;
+        }
+        place(new Entry<>(item, tick));
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMillis}.
+     *
+     * @return items whose deadline is now reached
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        List<T> due = new ArrayList<>();
+        while (currentTick < target) {
+            currentTick++;
+            if ((currentTick & MASK) == 0) {
+                long level1 = currentTick >>> SLOT_BITS;
+                if ((level1 & MASK) == 0) {
+                    long level2 = level1 >>> SLOT_BITS;
+                    if ((level2 & MASK) == 0) {
+                        List<Entry<T>> far = overflow;
+                        overflow = new ArrayList<>();
+                        cascade(far, due);
+                    }
+                    cascade(slot(2, level2), due);
+                }
+                cascade(slot(1, level1), due);
+            }
+            cascade(slot(0, currentTick), due);
+        }
+        size -= due.size();
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(List<Entry<T>> entries, List<T> due) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Entry<T>> moving = new ArrayList<>(entries);
+        entries.clear();
+        for (Entry<T> entry : moving) {
+            if (entry.tick() <= currentTick) {
+                due.add(entry.item());
+            } else {
+                place(entry);
+            }
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.tick() - currentTick;
+        if (delta < SLOTS) {
+            slot(0, entry.tick()).add(entry);
+        } else if (delta < (long) SLOTS * SLOTS) {
+            slot(1, entry.tick() >>> SLOT_BITS).add(entry);
+        } else if (delta < (long) SLOTS * SLOTS * SLOTS) {
+            slot(2, entry.tick() >>> (2 * SLOT_BITS)).add(entry);
+        } else {
+            overflow.add(entry);
+        }
+    }
+
+    private List<Entry<T>> slot(int level, long index) {
+        return slots.get(level * SLOTS + (int) (index & MASK));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.shortener.util;
 import com.example.shortener.entity.Url;
 import com.example.shortener.entity.AbuseEvent;
 import com.example.shortener.entity.AbuseEventType;
+import com.example.shortener.model.RedirectEntry;
 import com.example.shortener.service.AbuseEventService;
 import com.example.shortener.service.BlacklistService;
 import lombok.RequiredArgsConstructor;
@@ -57,4 +58,15 @@ public class UrlValidator {
         return url.isActive() &&
                 (url.getExpiresAt() == null || url.getExpiresAt().isAfter(Instant.now()));
     }
+
+    /**
+     * Checks if the given redirect entry is active (not expired and active flag is true)
+     *
+     * @param entry the cached redirect entry
+     * @return true if active, false otherwise
+     */
+    public boolean isActive(RedirectEntry entry) {
+        return entry.active() &&
+                (entry.expiresAt() == null || entry.expiresAt().isAfter(Instant.now()));
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.shortener.worker;
 
 import com.example.shortener.entity.Url;
+import com.example.shortener.properties.AppProperties;
 import com.example.shortener.repository.UrlRepository;
 import com.example.shortener.worker.metrics.CleanupMetrics;
 import io.micrometer.core.instrument.Timer;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -22,10 +24,15 @@ public class MonitoredUrlCleanupWorker {
 
     private final UrlRepository urlRepository;
     private final CleanupMetrics cleanupMetrics;
+    private final AppProperties appProperties;
+    private final UrlExpiryScheduler urlExpiryScheduler;
     private static final int BATCH_SIZE = 1000;
 
+    /**
+     * Safety net behind {@link UrlExpiryScheduler}, which deactivates URLs as they
+     * expire: catches anything it missed, a batch at a time.
+     */
     @Scheduled(fixedRate = 1, timeUnit = TimeUnit.HOURS)
-    @Transactional
     public void deactivateExpiredUrls() {
         Timer.Sample timer = cleanupMetrics.startTimer();
         Instant now = Instant.now();
@@ -34,13 +41,12 @@ public class MonitoredUrlCleanupWorker {
         try {
             log.info("🕒 Starting expired URL deactivation at {}", now);
 
-            // Use bulk update for better performance on large datasets
-            int updatedCount = urlRepository.bulkDeactivateExpiredUrls(now, now);
+            // Small batches, each its own transaction, instead of one table-wide UPDATE
+            totalDeactivated = urlExpiryScheduler.deactivateOverdue(now);
 
-            if (updatedCount > 0) {
-                totalDeactivated = updatedCount;
-                cleanupMetrics.recordExpiredUrls(updatedCount);
-                log.info("✅ Bulk deactivated {} expired URLs", updatedCount);
+            if (totalDeactivated > 0) {
+                cleanupMetrics.recordExpiredUrls((int) totalDeactivated);
+                log.info("✅ Deactivated {} expired URLs", totalDeactivated);
             }
 
         } catch (Exception e) {
@@ -50,11 +56,16 @@ public class MonitoredUrlCleanupWorker {
         }
     }
 
+    /**
+     * Removes soft-deleted rows that still share a partition with live URLs.
+     * Partitions holding nothing but such rows are dropped whole by
+     * {@link PartitionLifecycleManager} instead.
+     */
     @Scheduled(cron = "0 0 3 * * *")
     @Transactional
     public void permanentlyDeleteUrls() {
         Timer.Sample timer = cleanupMetrics.startTimer();
-        Instant cutoff = Instant.now().minusSeconds(30 * 24 * 3600L);
+        Instant cutoff = Instant.now().minus(appProperties.getPartitions().getDeletedRetentionDays(), ChronoUnit.DAYS);
         long totalDeleted = 0;
 
         try {
@@ -0,0 +1,305 @@
+package com.example.shortener.worker;
+
+import com.example.shortener.properties.AppProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the monthly partitions of {@code urls} in shape.
+ *
+ * - Creates the current month and {@code app.partitions.months-ahead} future
+ *   months (with their indexes) so inserts never hit a missing partition.
+ * - Drops, or moves to {@code app.partitions.archive-schema}, old partitions
+ *   whose rows were all soft-deleted more than the retention period ago. This
+ *   replaces deleting those rows one page at a time.
+ * - Publishes partition count and per-partition size/row estimates.
+ *
+ * Maintenance runs on one node at a time, under a session advisory lock held
+ * on a single connection. Every step can be repeated. A partition is recorded
+ * in {@code partition_removals} before it is detached, and each run first
+ * finishes the removals an interrupted one left behind: a pending concurrent
+ * detach is finalized, and the detached table is dropped (or archived) or
+ * re-attached. Tables without such a record are never touched.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartitionLifecycleManager {
+
+    private static final String PARTITION_PREFIX = "urls_";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'urls'::regclass
+            ORDER BY c.relname
+            """;
+
+    // Removals an earlier run recorded but did not finish, with where each table stands now
+    private static final String UNFINISHED_REMOVALS_SQL = """
+            SELECT r.partition_name,
+                   c.oid IS NOT NULL AS present,
+                   coalesce(c.relispartition, false) AS attached,
+                   coalesce(i.inhdetachpending, false) AS detach_pending
+            FROM partition_removals r
+            LEFT JOIN pg_class c ON c.relname = r.partition_name
+                AND c.relnamespace = current_schema()::regnamespace AND c.relkind = 'r'
+            LEFT JOIN pg_inherits i ON i.inhrelid = c.oid
+            ORDER BY r.partition_name
+            """;
+
+    private static final String DELETE_REMOVAL_SQL = "DELETE FROM partition_removals WHERE partition_name = ?";
+
+    // Held for the whole run, so only one node maintains partitions at a time
+    private static final long MAINTENANCE_LOCK_ID = 0x75726c735f706172L; // "urls_par"
+
+    private static final String PARTITION_STATS_SQL = """
+            SELECT c.relname, pg_total_relation_size(c.oid) AS bytes, greatest(c.reltuples, 0)::bigint AS row_estimate
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'urls'::regclass
+            """;
+
+    // A row keeps its partition alive until it has been soft-deleted for the whole retention period
+    private static final String HAS_RETAINED_ROWS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM \"%s\" WHERE deleted_at IS NULL OR deleted_at >= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger partitionCount = new AtomicInteger();
+    private MultiGauge partitionBytes;
+    private MultiGauge partitionRows;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("urls.partitions", partitionCount, AtomicInteger::get)
+                .description("Monthly partitions attached to the urls table")
+                .register(meterRegistry);
+        partitionBytes = MultiGauge.builder("urls.partition.size")
+                .description("Total size of a urls partition including indexes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        partitionRows = MultiGauge.builder("urls.partition.rows")
+                .description("Planner row estimate of a urls partition")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+        refreshMetrics();
+    }
+
+    @Scheduled(cron = "${app.partitions.cron:0 45 2 * * *}")
+    public void maintain() {
+        AppProperties.Partitions props = appProperties.getPartitions();
+        if (!props.isEnabled()) {
+            return;
+        }
+        try {
+            // DETACH ... CONCURRENTLY can't run in a transaction, and the lock belongs to the
+            // session, so every step runs in autocommit on this one connection
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+                if (!Boolean.TRUE.equals(session.queryForObject(
+                        "SELECT pg_try_advisory_lock(?)", Boolean.class, MAINTENANCE_LOCK_ID))) {
+                    log.debug("Partition maintenance is running on another node; skipping");
+                    return null;
+                }
+                try {
+                    maintain(session, props);
+                } finally {
+                    session.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, MAINTENANCE_LOCK_ID);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("❌ Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * One maintenance run, on a session that holds the maintenance lock.
+     */
+    void maintain(JdbcTemplate session, AppProperties.Partitions props) {
+        createAhead(session, props.getMonthsAhead());
+        resumeInterrupted(session, props);
+        dropExpired(session, props);
+    }
+
+    private void createAhead(JdbcTemplate session, int monthsAhead) {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= monthsAhead; i++) {
+            session.query("SELECT create_month_partition(?)", (RowCallbackHandler) rs -> {
+            }, current.plusMonths(i).atDay(1));
+        }
+        log.debug("Partitions ensured through {}", current.plusMonths(monthsAhead));
+    }
+
+    /**
+     * Completes the removals an earlier run recorded but did not finish: a
+     * concurrent detach that was interrupted, or a detached table that was never
+     * dropped. A record whose table is gone, or was never detached, is cleared;
+     * in the latter case {@link #dropExpired} considers the partition afresh.
+     */
+    private void resumeInterrupted(JdbcTemplate session, AppProperties.Partitions props) {
+        Instant cutoff = retentionCutoff(props);
+        List<UnfinishedRemoval> removals = session.query(UNFINISHED_REMOVALS_SQL, (rs, i) -> new UnfinishedRemoval(
+                rs.getString("partition_name"), rs.getBoolean("present"),
+                rs.getBoolean("attached"), rs.getBoolean("detach_pending")));
+        for (UnfinishedRemoval removal : removals) {
+            String partition = removal.partition();
+            YearMonth month = monthOf(partition);
+            try {
+                if (removal.detachPending()) {
+                    session.execute("ALTER TABLE urls DETACH PARTITION \"%s\" FINALIZE".formatted(partition));
+                    log.info("Finalized the interrupted detach of partition {}", partition);
+                } else if (!removal.present() || removal.attached() || month == null) {
+                    session.update(DELETE_REMOVAL_SQL, partition);
+                    continue;
+                }
+                log.info("Resuming removal of detached partition {}", partition);
+                removeDetached(session, partition, month, cutoff, props);
+            } catch (DataAccessException e) {
+                log.error("❌ Failed to remove detached partition {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Only partitions whose whole month lies before the retention cutoff are considered.
+     * Rows can still arrive (e.g. from an import) between the check and the detach, so
+     * the detached table is checked again before anything is removed. Once detached,
+     * no insert can reach it, so that second check is final.
+     */
+    private void dropExpired(JdbcTemplate session, AppProperties.Partitions props) {
+        Instant cutoff = retentionCutoff(props);
+        YearMonth newestCandidate = newestCandidate(cutoff);
+
+        List<String> partitions = session.queryForList(PARTITIONS_SQL, String.class);
+        for (String partition : partitions) {
+            YearMonth month = monthOf(partition);
+            if (month == null || month.isAfter(newestCandidate) || hasRetainedRows(session, partition, cutoff)) {
+                continue;
+            }
+            try {
+                session.update("INSERT INTO partition_removals (partition_name) VALUES (?) ON CONFLICT DO NOTHING",
+                        partition);
+                session.execute("ALTER TABLE urls DETACH PARTITION \"%s\" CONCURRENTLY".formatted(partition));
+                removeDetached(session, partition, month, cutoff, props);
+            } catch (DataAccessException e) {
+                // Whatever was left half done is picked up by the next run
+                log.error("❌ Failed to remove partition {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops or archives a detached partition, or re-attaches it if it still
+     * holds rows within retention, then clears its removal record. Safe to
+     * repeat after a crash at any step.
+     */
+    private void removeDetached(JdbcTemplate session, String partition, YearMonth month, Instant cutoff,
+                                AppProperties.Partitions props) {
+        if (month.isAfter(newestCandidate(cutoff)) || hasRetainedRows(session, partition, cutoff)) {
+            String bounds = "FROM ('%s') TO ('%s')".formatted(month.atDay(1), month.plusMonths(1).atDay(1));
+            session.execute("ALTER TABLE urls ATTACH PARTITION \"%s\" FOR VALUES %s".formatted(partition, bounds));
+            session.update(DELETE_REMOVAL_SQL, partition);
+            log.warn("Partition {} holds rows within retention; re-attached", partition);
+            return;
+        }
+
+        // DROP and SET SCHEMA don't fire the row trigger, so clean the directory explicitly
+        int keys = session.update(("DELETE FROM short_key_directory d USING \"%s\" p "
+                + "WHERE d.short_key = p.short_key AND d.url_id = p.id").formatted(partition));
+        session.update("DELETE FROM short_key_directory_backfill WHERE partition_name = ?", partition);
+
+        String archiveSchema = props.getArchiveSchema();
+        if (archiveSchema == null || archiveSchema.isBlank()) {
+            session.execute("DROP TABLE \"%s\"".formatted(partition));
+            log.info("🗑️ Dropped partition {} ({} directory keys removed)", partition, keys);
+        } else {
+            session.execute("CREATE SCHEMA IF NOT EXISTS \"%s\"".formatted(archiveSchema));
+            session.execute("ALTER TABLE \"%s\" SET SCHEMA \"%s\"".formatted(partition, archiveSchema));
+            log.info("📦 Archived partition {} to schema {} ({} directory keys removed)", partition, archiveSchema, keys);
+        }
+        session.update(DELETE_REMOVAL_SQL, partition);
+    }
+
+    private static Instant retentionCutoff(AppProperties.Partitions props) {
+        return Instant.now().minus(props.getDeletedRetentionDays(), ChronoUnit.DAYS);
+    }
+
+    private static YearMonth newestCandidate(Instant cutoff) {
+        return YearMonth.from(cutoff.atZone(ZoneOffset.UTC)).minusMonths(1);
+    }
+
+    private boolean hasRetainedRows(JdbcTemplate session, String partition, Instant cutoff) {
+        return Boolean.TRUE.equals(session.queryForObject(HAS_RETAINED_ROWS_SQL.formatted(partition),
+                Boolean.class, LocalDateTime.ofInstant(cutoff, ZoneOffset.UTC)));
+    }
+
+    private static YearMonth monthOf(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_MONTH);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.partitions.metrics-interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void refreshMetrics() {
+        try {
+            List<PartitionStats> stats = jdbcTemplate.query(PARTITION_STATS_SQL, (rs, i) ->
+                    new PartitionStats(rs.getString("relname"), rs.getLong("bytes"), rs.getLong("row_estimate")));
+
+            partitionCount.set(stats.size());
+            partitionBytes.register(stats.stream()
+                    .<MultiGauge.Row<?>>map(s -> MultiGauge.Row.of(Tags.of("partition", s.name()), s.bytes()))
+                    .toList(), true);
+            partitionRows.register(stats.stream()
+                    .<MultiGauge.Row<?>>map(s -> MultiGauge.Row.of(Tags.of("partition", s.name()), s.rows()))
+                    .toList(), true);
+        } catch (Exception e) {
+            log.warn("Failed to refresh partition metrics: {}", e.getMessage());
+        }
+    }
+
+    private record PartitionStats(String name, long bytes, long rows) {
+    }
+
+    private record UnfinishedRemoval(String partition, boolean present, boolean attached, boolean detachPending) {
+    }
+}
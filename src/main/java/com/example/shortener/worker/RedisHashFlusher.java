@@ -1,98 +1,357 @@
 package com.example.shortener.worker;
 
+import com.example.shortener.properties.ClickProperties;
+import com.example.shortener.repository.ClickCountRepository;
+import com.example.shortener.util.ClickShards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Moves click counts from the sharded Redis {@code clicks:{n}} hashes into
+ * {@code urls.click_count}.
+ *
+ * Each shard is its own lane. A flush atomically renames every shard's live
+ * hash to a snapshot key (registered in the shard's sorted set by creation
+ * time), so increments landing during the flush go to a fresh hash instead of
+ * being lost. The snapshots are then written to Postgres in chunks, up to
+ * {@code app.clicks.flush-parallelism} at a time across all lanes on the task
+ * executor, each chunk in its own transaction. Before and after writing a
+ * chunk the flush renews the snapshot's score in the registry, and a committed
+ * chunk's fields are removed from the snapshot. A chunk that keeps failing
+ * stays there, and the snapshot is taken over by a later flush once its score
+ * is older than {@code app.clicks.snapshot-claim-after-seconds}, i.e. once its
+ * flush died or made no progress for that long. A flush that finds its snapshot
+ * taken over stops writing it. A failing shard never holds up the others.
+ *
+ * The unsharded {@code clicks} hash of earlier versions is drained as one more lane.
+ *
+ * Counts are never dropped, but a chunk is counted twice if its node dies
+ * between the commit and the removal from the snapshot, or if a single chunk
+ * write (retries included) outlasts the claim timeout while a later flush
+ * takes the snapshot over; keep the timeout well above a transaction's duration.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "app.clicks", name = "sink", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 public class RedisHashFlusher {
 
     private final StringRedisTemplate redisTemplate;
-    private final JdbcTemplate jdbcTemplate;
+    private final ClickCountRepository clickCountRepository;
     private final ThreadPoolTaskExecutor taskExecutor; // يجب تعريف Bean في SpringConfig
+    private final ShortKeyDirectoryBackfillWorker directoryBackfill;
+    private final PlatformTransactionManager transactionManager;
+    private final ClickProperties clickProperties;
+    private final ClickShards clickShards;
+    private final MeterRegistry meterRegistry;
 
-    private static final String HASH_KEY = "clicks";
+    // Pre-sharding hash; its snapshot keys share its slot through the {clicks} tag
+    private static final String LEGACY_HASH_KEY = "clicks";
     private static final int BATCH_SIZE = 500;
+    private static final long RETRY_BACKOFF_MS = 500;
+
+    // KEYS: live hash, snapshot, registry; ARGV: created-at millis
+    private static final RedisScript<Long> TAKE_SNAPSHOT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            redis.call('RENAME', KEYS[1], KEYS[2])
+            redis.call('PERSIST', KEYS[2])
+            redis.call('ZADD', KEYS[3], ARGV[1], KEYS[2])
+            return 1
+            """, Long.class);
+
+    // KEYS: registry, stale snapshot, new snapshot; ARGV: now millis, claim cutoff millis
+    private static final RedisScript<Long> CLAIM_SNAPSHOT = new DefaultRedisScript<>("""
+            local created = redis.call('ZSCORE', KEYS[1], KEYS[2])
+            if not created or tonumber(created) > tonumber(ARGV[2]) then return 0 end
+            redis.call('ZREM', KEYS[1], KEYS[2])
+            if redis.call('EXISTS', KEYS[2]) == 0 then return 0 end
+            redis.call('RENAME', KEYS[2], KEYS[3])
+            redis.call('ZADD', KEYS[1], ARGV[1], KEYS[3])
+            return 1
+            """, Long.class);
+
+    // KEYS: registry, snapshot; ARGV: now millis
+    private static final RedisScript<Long> RENEW_SNAPSHOT = new DefaultRedisScript<>("""
+            if not redis.call('ZSCORE', KEYS[1], KEYS[2]) then return 0 end
+            redis.call('ZADD', KEYS[1], ARGV[1], KEYS[2])
+            return 1
+            """, Long.class);
+
+    /**
+     * One shard's keys, plus its backlog as of the last flush.
+     */
+    private record Lane(String name, String liveKey, String snapshotPrefix, String registryKey,
+                        AtomicLong pendingFields, AtomicLong pendingSnapshots) {
+
+        Lane(String name, String liveKey, String snapshotPrefix, String registryKey) {
+            this(name, liveKey, snapshotPrefix, registryKey, new AtomicLong(), new AtomicLong());
+        }
+
+        String newSnapshotKey() {
+            return snapshotPrefix + System.currentTimeMillis() + ":" + UUID.randomUUID();
+        }
+    }
+
+    private final List<Lane> lanes = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        for (int shard = 0; shard < clickShards.count(); shard++) {
+            lanes.add(new Lane(String.valueOf(shard), clickShards.hashKey(shard),
+                    clickShards.snapshotPrefix(shard), clickShards.registryKey(shard)));
+        }
+        lanes.add(new Lane("legacy", LEGACY_HASH_KEY, "{clicks}:snapshot:", "{clicks}:snapshots"));
+
+        for (Lane lane : lanes) {
+            Gauge.builder("clicks.shard.pending", lane.pendingFields(), AtomicLong::get)
+                    .description("Short keys with clicks waiting in a shard's live hash")
+                    .tag("shard", lane.name())
+                    .register(meterRegistry);
+            Gauge.builder("clicks.shard.snapshots", lane.pendingSnapshots(), AtomicLong::get)
+                    .description("Unfinished flush snapshots of a shard")
+                    .tag("shard", lane.name())
+                    .register(meterRegistry);
+        }
+    }
 
     @Scheduled(fixedRate = 30_000)
     public void flushIncrementally() {
-        // Use HSCAN for incremental processing
+        try {
+            refreshBacklog();
+        } catch (Exception e) {
+            log.warn("Failed to read click shard backlog: {}", e.getMessage());
+        }
+
+        // Shared by all lanes, so the database sees at most flush-parallelism writers
+        Semaphore permits = new Semaphore(Math.max(1, clickProperties.getFlushParallelism()));
+        List<CompletableFuture<Void>> snapshots = new ArrayList<>();
+        for (Lane lane : lanes) {
+            try {
+                for (String snapshot : claimStaleSnapshots(lane)) {
+                    snapshots.add(flushSnapshot(lane, snapshot, permits));
+                }
+                String snapshot = lane.newSnapshotKey();
+                if (takeSnapshot(lane, snapshot)) {
+                    snapshots.add(flushSnapshot(lane, snapshot, permits));
+                }
+            } catch (Exception e) {
+                log.error("❌ Click flush of {} failed: {}", lane.liveKey(), e.getMessage(), e);
+            }
+        }
+        CompletableFuture.allOf(snapshots.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Reads every lane's live hash size and snapshot count in one pipeline.
+     */
+    private void refreshBacklog() {
+        List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Lane lane : lanes) {
+                connection.hashCommands().hLen(bytes(lane.liveKey()));
+                connection.zSetCommands().zCard(bytes(lane.registryKey()));
+            }
+            return null;
+        });
+        for (int i = 0; i < lanes.size(); i++) {
+            lanes.get(i).pendingFields().set(((Number) sizes.get(2 * i)).longValue());
+            lanes.get(i).pendingSnapshots().set(((Number) sizes.get(2 * i + 1)).longValue());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean takeSnapshot(Lane lane, String snapshot) {
+        Long taken = redisTemplate.execute(TAKE_SNAPSHOT, List.of(lane.liveKey(), snapshot, lane.registryKey()),
+                String.valueOf(System.currentTimeMillis()));
+        return taken != null && taken == 1;
+    }
+
+    /**
+     * Takes over snapshots left unfinished by an earlier flush (here or on a node
+     * that died), renaming each so no other node picks it up at the same time.
+     */
+    private List<String> claimStaleSnapshots(Lane lane) {
+        long now = System.currentTimeMillis();
+        long cutoff = now - clickProperties.getSnapshotClaimAfterSeconds() * 1000;
+        Set<String> stale = redisTemplate.opsForZSet().rangeByScore(lane.registryKey(), 0, cutoff);
+        if (stale == null || stale.isEmpty()) {
+            return List.of();
+        }
+        List<String> claimed = new ArrayList<>();
+        for (String snapshot : stale) {
+            String renamed = lane.newSnapshotKey();
+            Long result = redisTemplate.execute(CLAIM_SNAPSHOT, List.of(lane.registryKey(), snapshot, renamed),
+                    String.valueOf(now), String.valueOf(cutoff));
+            if (result != null && result == 1) {
+                log.warn("♻️ Claimed unfinished click snapshot {}", snapshot);
+                claimed.add(renamed);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Submits one snapshot to the database in parallel chunks.
+     *
+     * @return completes once every chunk has finished and the snapshot is cleaned up
+     */
+    private CompletableFuture<Void> flushSnapshot(Lane lane, String snapshot, Semaphore permits) {
+        long started = System.currentTimeMillis();
+        List<CompletableFuture<Boolean>> chunks = new ArrayList<>();
+
+        // HSCAN returns every field at least once but may repeat some, e.g. after a
+        // rehash or while committed chunks are HDEL'd, so repeats are skipped: a
+        // field must be counted once and appear in only one chunk
+        Set<String> seen = new HashSet<>();
         try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash()
-                .scan(HASH_KEY, ScanOptions.scanOptions().count(BATCH_SIZE).build())) {
+                .scan(snapshot, ScanOptions.scanOptions().count(BATCH_SIZE).build())) {
             List<Map.Entry<String, Long>> batch = new ArrayList<>();
             while (cursor.hasNext()) {
                 Map.Entry<Object, Object> entry = cursor.next();
-                batch.add(Map.entry(
-                        entry.getKey().toString(),
-                        Long.parseLong(entry.getValue().toString())
-                ));
+                String shortKey = entry.getKey().toString();
+                if (!seen.add(shortKey)) {
+                    continue;
+                }
+                batch.add(Map.entry(shortKey, Long.parseLong(entry.getValue().toString())));
 
                 if (batch.size() >= BATCH_SIZE) {
-                    processAndDeleteBatch(batch);
-                    batch.clear();
+                    chunks.add(submitChunk(lane, snapshot, batch, chunks.size() + 1, permits));
+                    batch = new ArrayList<>();
                 }
             }
 
             // Process remaining
             if (!batch.isEmpty()) {
-                processAndDeleteBatch(batch);
+                chunks.add(submitChunk(lane, snapshot, batch, chunks.size() + 1, permits));
             }
         }
-    }
 
-    private void processAndDeleteBatch(List<Map.Entry<String, Long>> batch) {
-        // Process batch
-        processBatch(batch, 1);
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            long failed = chunks.stream().filter(chunk -> !chunk.join()).count();
+            if (failed == 0) {
+                redisTemplate.delete(snapshot);
+                redisTemplate.opsForZSet().remove(lane.registryKey(), snapshot);
+                log.info("✅ Flushed {} click chunks from {} in {} ms", chunks.size(), snapshot,
+                        System.currentTimeMillis() - started);
+            } else {
+                log.warn("⚠️ {} of {} click chunks failed; kept in {} for a later flush", failed, chunks.size(), snapshot);
+            }
+        });
+    }
 
-        // Delete processed keys
-        String[] keys = batch.stream()
-                .map(Map.Entry::getKey)
-                .toArray(String[]::new);
-        redisTemplate.opsForHash().delete(RedisHashFlusher.HASH_KEY, (Object[]) keys);
+    private CompletableFuture<Boolean> submitChunk(Lane lane, String snapshot,
+                                                   List<Map.Entry<String, Long>> batch,
+                                                   int batchNumber, Semaphore permits) {
+        permits.acquireUninterruptibly();
+        try {
+            return CompletableFuture.supplyAsync(() -> flushChunk(lane, snapshot, batch, batchNumber), taskExecutor)
+                    .whenComplete((ok, e) -> permits.release());
+        } catch (TaskRejectedException e) {
+            // Executor saturated; write this chunk on the flushing thread instead
+            permits.release();
+            return CompletableFuture.completedFuture(flushChunk(lane, snapshot, batch, batchNumber));
+        }
     }
 
     /**
-     * Batch update URLs table click_count
+     * Writes a chunk in one transaction, retrying with backoff, then removes its
+     * fields from the snapshot. Each attempt first renews the snapshot's claim
+     * and gives up if another flush has taken the snapshot over.
+     *
+     * @return false if the chunk was not written and is still in the snapshot
      */
-    @Transactional
-    protected void processBatch(List<Map.Entry<String, Long>> batch, int batchNumber) {
-        if (batch.isEmpty()) return;
+    private boolean flushChunk(Lane lane, String snapshot, List<Map.Entry<String, Long>> batch, int batchNumber) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int maxAttempts = Math.max(1, clickProperties.getFlushMaxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            if (!renewSnapshot(lane, snapshot, batchNumber)) {
+                return false;
+            }
+            try {
+                tx.executeWithoutResult(status -> processBatch(batch, batchNumber));
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("❌ [Batch {}] Giving up after {} attempts: {}", batchNumber, attempt, e.getMessage(), e);
+                    return false;
+                }
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
 
-        String sql = "UPDATE urls SET click_count = click_count + ? WHERE short_key = ?";
+        renewSnapshot(lane, snapshot, batchNumber);
+        try {
+            redisTemplate.opsForHash().delete(snapshot, batch.stream().map(Map.Entry::getKey).toArray());
+        } catch (Exception e) {
+            // Committed already; the snapshot is deleted whole once every chunk succeeds
+            log.warn("[Batch {}] Failed to remove flushed fields from {}: {}", batchNumber, snapshot, e.getMessage());
+        }
+        return true;
+    }
 
+    /**
+     * Moves the snapshot's registry score to now, so it is not claimed while this
+     * flush is still making progress.
+     *
+     * @return false if the snapshot is no longer registered, i.e. another flush
+     * claimed it, or Redis could not be reached
+     */
+    private boolean renewSnapshot(Lane lane, String snapshot, int batchNumber) {
         try {
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int i) throws SQLException {
-                    Map.Entry<String, Long> e = batch.get(i);
-                    ps.setLong(1, e.getValue());
-                    ps.setString(2, e.getKey());
-                }
-                @Override
-                public int getBatchSize() {
-                    return batch.size();
-                }
-            });
+            Long renewed = redisTemplate.execute(RENEW_SNAPSHOT, List.of(lane.registryKey(), snapshot),
+                    String.valueOf(System.currentTimeMillis()));
+            if (renewed != null && renewed == 1) {
+                return true;
+            }
+            log.warn("[Batch {}] {} was taken over by another flush", batchNumber, snapshot);
+        } catch (Exception e) {
+            log.warn("[Batch {}] Failed to renew {}: {}", batchNumber, snapshot, e.getMessage());
+        }
+        return false;
+    }
 
-            log.info("[Batch {}] Successfully updated {} URLs", batchNumber, batch.size());
+    /**
+     * Adds a chunk's counts to urls.click_count in one set-based statement.
+     */
+    private void processBatch(List<Map.Entry<String, Long>> batch, int batchNumber) {
+        if (batch.isEmpty()) return;
+
+        try {
+            int updated = clickCountRepository.addClicks(batch, directoryBackfill.needsFallbackScan());
+            log.info("[Batch {}] Successfully updated {} URLs", batchNumber, updated);
 
         } catch (DataAccessException dae) {
-            log.error("[Batch {}] Failed to update DB. Will retry next flush. Cause: {}", batchNumber, dae.getMessage(), dae);
+            log.warn("[Batch {}] Failed to update DB. Cause: {}", batchNumber, dae.getMessage());
             throw dae;
         }
     }
@@ -0,0 +1,107 @@
+package com.example.shortener.worker;
+
+import com.example.shortener.properties.AppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies rows created before the short key directory existed into it.
+ *
+ * Each partition is walked in short_key order through its unique index and
+ * copied in chunks; rows already present (inserted by the trigger, or by
+ * another node running the same backfill) are skipped. Finished partitions are
+ * recorded so restarts resume where they left off. Until every partition is
+ * done, lookups that miss the directory fall back to scanning all partitions.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortKeyDirectoryBackfillWorker {
+
+    private static final String PENDING_PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'urls'::regclass
+              AND c.relname NOT IN (SELECT partition_name FROM short_key_directory_backfill)
+            ORDER BY c.relname
+            """;
+
+    private static final String COPY_CHUNK_SQL = """
+            WITH chunk AS (
+                SELECT short_key, id, created_at FROM "%s"
+                WHERE short_key > ?
+                ORDER BY short_key
+                LIMIT ?
+            ), copied AS (
+                INSERT INTO short_key_directory (short_key, url_id, created_at)
+                SELECT short_key, id, created_at FROM chunk
+                ON CONFLICT (short_key) DO NOTHING
+                RETURNING 1
+            )
+            SELECT (SELECT count(*) FROM chunk) AS scanned,
+                   (SELECT max(short_key) FROM chunk) AS last_key,
+                   (SELECT count(*) FROM copied) AS copied
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppProperties appProperties;
+    private final ThreadPoolTaskExecutor taskExecutor;
+
+    private volatile boolean complete;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (appProperties.getDirectory().isBackfillEnabled()) {
+            taskExecutor.execute(this::backfill);
+        }
+    }
+
+    /**
+     * @return true while a directory miss may still be a key that only exists in {@code urls}
+     */
+    public boolean needsFallbackScan() {
+        return !complete && appProperties.getDirectory().isFallbackScanEnabled();
+    }
+
+    private void backfill() {
+        try {
+            List<String> partitions = jdbcTemplate.queryForList(PENDING_PARTITIONS_SQL, String.class);
+            for (String partition : partitions) {
+                long copied = backfillPartition(partition);
+                jdbcTemplate.update("INSERT INTO short_key_directory_backfill (partition_name) VALUES (?) "
+                        + "ON CONFLICT (partition_name) DO NOTHING", partition);
+                log.info("📇 Short key directory backfilled from {} ({} keys copied)", partition, copied);
+            }
+            complete = true;
+            log.info("✅ Short key directory is complete");
+        } catch (Exception e) {
+            log.error("❌ Short key directory backfill failed, lookups keep the fallback scan: {}", e.getMessage(), e);
+        }
+    }
+
+    private long backfillPartition(String partition) {
+        String sql = COPY_CHUNK_SQL.formatted(partition);
+        int batchSize = appProperties.getDirectory().getBackfillBatchSize();
+        String lastKey = "";
+        long copied = 0;
+
+        while (true) {
+            Map<String, Object> chunk = jdbcTemplate.queryForMap(sql, lastKey, batchSize);
+            long scanned = ((Number) chunk.get("scanned")).longValue();
+            if (scanned == 0) {
+                return copied;
+            }
+            copied += ((Number) chunk.get("copied")).longValue();
+            lastKey = (String) chunk.get("last_key");
+        }
+    }
+}
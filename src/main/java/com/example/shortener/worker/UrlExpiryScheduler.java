@@ -0,0 +1,252 @@
+package com.example.shortener.worker;
+
+import com.example.shortener.cache.LocalUrlCache;
+import com.example.shortener.cache.RedisRedirectCache;
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deactivates URLs when they expire rather than at the next hourly sweep.
+ *
+ * Expiries within {@code app.expiry.horizon-minutes} are held in a
+ * {@link TimingWheel}: loaded from the database every
+ * {@code load-interval-seconds}, and added directly as URLs are created.
+ * Every tick, the keys that came due are deactivated in batches of
+ * {@code batch-size} (each its own short transaction) and evicted from Redis
+ * and every node's local cache.
+ *
+ * Each node loads the same upcoming expiries, so a key may fire on several
+ * nodes; the UPDATE only matches still-active rows, so that is harmless.
+ * Anything missed (a node restarting, expiries created on a node that died)
+ * is caught by {@link #deactivateOverdue}, which the hourly cleanup runs.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UrlExpiryScheduler {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private static final String UPCOMING_SQL = """
+            SELECT short_key, expires_at
+            FROM urls
+            WHERE is_active AND expires_at >= ? AND expires_at < ?
+            """;
+
+    // The directory names each key's partition, so a batch touches only those partitions
+    private static final String DEACTIVATE_SQL = """
+            UPDATE urls u SET is_active = false, deleted_at = ?
+            FROM short_key_directory d
+            WHERE d.short_key = ANY(?)
+              AND u.short_key = d.short_key AND u.created_at = d.created_at
+              AND u.is_active AND u.expires_at <= ?
+            RETURNING u.short_key
+            """;
+
+    private static final String DEACTIVATE_ANY_PARTITION_SQL = """
+            UPDATE urls SET is_active = false, deleted_at = ?
+            WHERE short_key = ANY(?) AND is_active AND expires_at <= ?
+            RETURNING short_key
+            """;
+
+    private static final String DEACTIVATE_OVERDUE_SQL = """
+            WITH due AS (
+                SELECT short_key, created_at
+                FROM urls
+                WHERE is_active AND expires_at < ?
+                LIMIT ?
+            )
+            UPDATE urls u SET is_active = false, deleted_at = ?
+            FROM due
+            WHERE u.short_key = due.short_key AND u.created_at = due.created_at
+            RETURNING u.short_key
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+    private final RedisRedirectCache redisRedirectCache;
+    private final LocalUrlCache localUrlCache;
+    private final ShortKeyDirectoryBackfillWorker directoryBackfill;
+
+    private TimingWheel<String> wheel;
+    private volatile Instant loadedUntil;
+    private Counter deactivatedByWheel;
+    private Counter deactivatedBySweep;
+
+    @PostConstruct
+    public void init() {
+        wheel = new TimingWheel<>(appProperties.getExpiry().getTickMillis(), System.currentTimeMillis());
+        Gauge.builder("url.expiry.scheduled", wheel, TimingWheel::size)
+                .description("URL expiries waiting in the timing wheel")
+                .register(meterRegistry);
+        deactivatedByWheel = Counter.builder("url.expiry.deactivated")
+                .description("URLs deactivated on expiry")
+                .tag("source", "wheel")
+                .register(meterRegistry);
+        deactivatedBySweep = Counter.builder("url.expiry.deactivated")
+                .description("URLs deactivated on expiry")
+                .tag("source", "sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules deactivation of a URL if it expires within the horizon. Later
+     * expiries are picked up by a future load; ones already past by the sweep.
+     */
+    public void schedule(String shortKey, Instant expiresAt) {
+        AppProperties.Expiry props = appProperties.getExpiry();
+        if (!props.isEnabled() || expiresAt == null) {
+            return;
+        }
+        if (expiresAt.isBefore(Instant.now().plus(Duration.ofMinutes(props.getHorizonMinutes())))) {
+            wheel.add(shortKey, expiresAt.toEpochMilli());
+        }
+    }
+
+    /**
+     * Adds the expiries between the end of the previous load and the horizon.
+     */
+    @Scheduled(fixedDelayString = "${app.expiry.load-interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void loadUpcoming() {
+        AppProperties.Expiry props = appProperties.getExpiry();
+        if (!props.isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant from = loadedUntil == null || loadedUntil.isBefore(now) ? now : loadedUntil;
+        Instant until = now.plus(Duration.ofMinutes(props.getHorizonMinutes()));
+        AtomicInteger loaded = new AtomicInteger();
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(UPCOMING_SQL);
+                ps.setObject(1, utc(from));
+                ps.setObject(2, utc(until));
+                ps.setFetchSize(props.getBatchSize());
+                return ps;
+            }, rs -> {
+                Instant expiresAt = rs.getObject("expires_at", LocalDateTime.class).toInstant(ZoneOffset.UTC);
+                wheel.add(rs.getString("short_key"), expiresAt.toEpochMilli());
+                loaded.incrementAndGet();
+            }));
+            loadedUntil = until;
+            log.debug("⏳ Loaded {} URL expiries up to {}", loaded.get(), until);
+        } catch (Exception e) {
+            log.error("❌ Failed to load upcoming URL expiries: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.tick-millis:1000}")
+    public void tick() {
+        if (!appProperties.getExpiry().isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<String> due = wheel.advance(now.toEpochMilli());
+        int batchSize = appProperties.getExpiry().getBatchSize();
+        for (int i = 0; i < due.size(); i += batchSize) {
+            List<String> batch = due.subList(i, Math.min(i + batchSize, due.size()));
+            try {
+                deactivate(batch, now);
+            } catch (Exception e) {
+                log.warn("Failed to deactivate {} expired URLs, retrying in {}s: {}",
+                        batch.size(), RETRY_DELAY.getSeconds(), e.getMessage());
+                long retryAt = now.plus(RETRY_DELAY).toEpochMilli();
+                batch.forEach(key -> wheel.add(key, retryAt));
+            }
+        }
+    }
+
+    /**
+     * Deactivates every URL that expired before {@code cutoff}, in batches,
+     * evicting each batch from the caches.
+     *
+     * @return number of URLs deactivated
+     */
+    public long deactivateOverdue(Instant cutoff) {
+        int batchSize = appProperties.getExpiry().getBatchSize();
+        long total = 0;
+        List<String> batch;
+        do {
+            batch = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(DEACTIVATE_OVERDUE_SQL);
+                ps.setObject(1, utc(cutoff));
+                ps.setInt(2, batchSize);
+                ps.setObject(3, utc(Instant.now()));
+                return ps;
+            }, (rs, i) -> rs.getString(1));
+            evict(batch);
+            total += batch.size();
+        } while (batch.size() == batchSize);
+        deactivatedBySweep.increment(total);
+        return total;
+    }
+
+    private void deactivate(List<String> shortKeys, Instant now) {
+        List<String> deactivated = new ArrayList<>(update(DEACTIVATE_SQL, shortKeys, now));
+        if (directoryBackfill.needsFallbackScan() && deactivated.size() < shortKeys.size()) {
+            Set<String> remaining = new HashSet<>(shortKeys);
+            deactivated.forEach(remaining::remove);
+            deactivated.addAll(update(DEACTIVATE_ANY_PARTITION_SQL, remaining, now));
+        }
+        evict(deactivated);
+        deactivatedByWheel.increment(deactivated.size());
+        if (!deactivated.isEmpty()) {
+            log.debug("⌛ Deactivated {} expired URLs", deactivated.size());
+        }
+    }
+
+    private List<String> update(String sql, Collection<String> shortKeys, Instant now) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setObject(1, utc(now));
+            ps.setArray(2, con.createArrayOf("text", shortKeys.toArray()));
+            ps.setObject(3, utc(now));
+            return ps;
+        }, (rs, i) -> rs.getString(1));
+    }
+
+    private void evict(List<String> shortKeys) {
+        if (shortKeys.isEmpty()) {
+            return;
+        }
+        try {
+            redisRedirectCache.deleteAll(shortKeys);
+        } catch (Exception e) {
+            log.warn("Failed to evict {} expired URLs from Redis: {}", shortKeys.size(), e.getMessage());
+        }
+        localUrlCache.invalidateAll(shortKeys);
+    }
+
+    // Columns are UTC wall-clock timestamps, matching hibernate.jdbc.time_zone
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
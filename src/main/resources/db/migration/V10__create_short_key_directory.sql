@@ -0,0 +1,40 @@
+-- ==========================================
+-- Flyway Migration V10
+-- Description: Global short key directory maintained alongside urls
+-- ==========================================
+
+-- One row per short key across all partitions. The primary key enforces
+-- global uniqueness, which the per-partition unique indexes cannot, and
+-- created_at lets lookups go straight to the owning partition.
+CREATE TABLE IF NOT EXISTS short_key_directory (
+    short_key VARCHAR(20) PRIMARY KEY,
+    url_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- Partitions whose pre-existing rows have been copied into the directory
+CREATE TABLE IF NOT EXISTS short_key_directory_backfill (
+    partition_name VARCHAR(63) PRIMARY KEY,
+    completed_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE OR REPLACE FUNCTION fn_sync_short_key_directory()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        -- Fails with a unique violation if the key exists in any partition
+        INSERT INTO short_key_directory (short_key, url_id, created_at)
+        VALUES (NEW.short_key, NEW.id, NEW.created_at);
+        RETURN NEW;
+    END IF;
+
+    DELETE FROM short_key_directory
+    WHERE short_key = OLD.short_key AND url_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_sync_short_key_directory
+AFTER INSERT OR DELETE ON urls
+FOR EACH ROW
+EXECUTE FUNCTION fn_sync_short_key_directory();
@@ -0,0 +1,38 @@
+-- ==========================================
+-- Flyway Migration V11
+-- Description: Function to create the partition for any month
+-- ==========================================
+
+CREATE OR REPLACE FUNCTION create_month_partition(month_start DATE)
+RETURNS void AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start);
+    partition_end DATE := date_trunc('month', month_start) + interval '1 month';
+    partition_name TEXT := 'urls_' || to_char(date_trunc('month', month_start), 'YYYY_MM');
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM pg_tables
+        WHERE schemaname = 'public' AND tablename = partition_name
+    ) THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('
+        CREATE TABLE %I PARTITION OF urls
+        FOR VALUES FROM (%L) TO (%L);',
+        partition_name,
+        partition_start::text,
+        partition_end::text
+    );
+
+    -- Indexes
+    EXECUTE format('CREATE UNIQUE INDEX idx_%I_short_key ON %I(short_key);', partition_name, partition_name);
+    EXECUTE format('CREATE INDEX idx_%I_created_at ON %I(created_at);', partition_name, partition_name);
+
+    RAISE NOTICE 'Partition % created successfully.', partition_name;
+EXCEPTION
+    -- Another session created it concurrently
+    WHEN duplicate_table THEN
+        RAISE NOTICE 'Partition % already exists.', partition_name;
+END;
+$$ LANGUAGE plpgsql;
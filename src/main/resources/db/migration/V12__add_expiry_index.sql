@@ -0,0 +1,9 @@
+-- ==========================================
+-- Flyway Migration V12
+-- Description: Index of active URLs by expiry, for loading upcoming
+-- expiries and the overdue sweep. Created on every partition.
+-- ==========================================
+
+CREATE INDEX IF NOT EXISTS idx_urls_active_expires_at
+    ON urls (expires_at)
+    WHERE is_active AND expires_at IS NOT NULL;
@@ -0,0 +1,12 @@
+-- ==========================================
+-- Flyway Migration V13
+-- Description: Journal of urls partitions being detached and removed
+-- ==========================================
+
+-- A row is written before a partition is detached and deleted once the table
+-- has been dropped, archived or re-attached. After a crash, partition
+-- maintenance resumes exactly these partitions and no other urls_YYYY_MM table.
+CREATE TABLE IF NOT EXISTS partition_removals (
+    partition_name VARCHAR(63) PRIMARY KEY,
+    started_at TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,13 @@
+-- ==========================================
+-- Flyway Migration V7
+-- Description: Sequence backing generated short keys
+-- ==========================================
+
+-- Each nextval() leases a block of 1000 ids to one application node, which
+-- then hands them out from memory. The block size is read back from
+-- pg_sequences, so INCREMENT BY is the single source of truth.
+CREATE SEQUENCE IF NOT EXISTS short_key_id_seq
+    AS BIGINT
+    START WITH 1
+    INCREMENT BY 1000
+    MINVALUE 1;
@@ -0,0 +1,16 @@
+-- ==========================================
+-- Flyway Migration V8
+-- Description: Journal of id blocks held in per-node short key pools
+-- ==========================================
+
+-- A row exists while some of the block's keys may still be unused. Rows whose
+-- owner stopped heartbeating are reclaimed by another node, which re-mints the
+-- block and drops the keys that were already used.
+CREATE TABLE IF NOT EXISTS key_pool_leases (
+    block_start BIGINT PRIMARY KEY,
+    block_end BIGINT NOT NULL,
+    owner VARCHAR(100) NOT NULL,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_key_pool_leases_heartbeat ON key_pool_leases(heartbeat_at);
@@ -0,0 +1,8 @@
+-- ==========================================
+-- Flyway Migration V9
+-- Description: Record when a key pool block was leased
+-- ==========================================
+
+-- Keys carry the month they were created in, so recovery only has to probe the
+-- months since the block was leased.
+ALTER TABLE key_pool_leases ADD COLUMN IF NOT EXISTS leased_at TIMESTAMP NOT NULL DEFAULT now();
@@ -0,0 +1,135 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.entity.Url;
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.properties.AppProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LegacyRedirectCacheMigratorTest {
+
+    private static final Instant EXPIRES_AT = Instant.parse("2026-12-31T23:59:59Z");
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = jsonSerializer();
+    private final RedirectEntryRedisSerializer serializer = new RedirectEntryRedisSerializer(jsonSerializer);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, CachedRedirect> template = mock(RedisTemplate.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final RedisKeyCommands keyCommands = mock(RedisKeyCommands.class);
+    private final RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+    private final LegacyRedirectCacheMigrator migrator = new LegacyRedirectCacheMigrator(template, new AppProperties());
+    /** What the migration callback returned: the number of entries it counts as migrated. */
+    private Object migrated;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doReturn(serializer).when(template).getValueSerializer();
+        when(template.execute(any(RedisCallback.class))).thenAnswer(invocation -> {
+            migrated = ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection);
+            return migrated;
+        });
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+    }
+
+    @Test
+    void rewritesLegacyEntriesKeepingTheirTtl() {
+        byte[] key = key("url:legacy1");
+        scan(key);
+        when(stringCommands.get(key)).thenReturn(jsonSerializer.serialize(url("legacy1")));
+        when(stringCommands.set(eq(key), any(), eq(Expiration.keepTtl()), eq(SetOption.SET_IF_PRESENT))).thenReturn(true);
+
+        migrator.migrate();
+
+        byte[] compact = serializer.serialize(serializer.deserialize(jsonSerializer.serialize(url("legacy1"))));
+        verify(stringCommands).set(key, compact, Expiration.keepTtl(), SetOption.SET_IF_PRESENT);
+        verify(keyCommands, never()).pTtl(any());
+        assertThat(migrated).isEqualTo(1L);
+    }
+
+    @Test
+    void skipsCompactEntries() {
+        byte[] key = key("url:compact1");
+        scan(key);
+        when(stringCommands.get(key)).thenReturn(RedirectEntryCodec.encode(
+                new CachedRedirect(new RedirectEntry("https://example.com", null, true), 0, 0)));
+
+        migrator.migrate();
+
+        verify(stringCommands, never()).set(any(), any(), any(), any());
+        assertThat(migrated).isEqualTo(0L);
+    }
+
+    @Test
+    void countsOnlyEntriesStillPresentWhenWritten() {
+        byte[] kept = key("url:kept1");
+        byte[] expired = key("url:gone1");
+        scan(kept, expired);
+        when(stringCommands.get(kept)).thenReturn(jsonSerializer.serialize(url("kept1")));
+        when(stringCommands.get(expired)).thenReturn(jsonSerializer.serialize(url("gone1")));
+        when(stringCommands.set(eq(kept), any(), any(), any())).thenReturn(true);
+        when(stringCommands.set(eq(expired), any(), any(), any())).thenReturn(false);
+
+        migrator.migrate();
+
+        assertThat(migrated).isEqualTo(1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scan(byte[]... keys) {
+        Iterator<byte[]> iterator = List.of(keys).iterator();
+        Cursor<byte[]> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        when(keyCommands.scan(any(ScanOptions.class))).thenReturn(cursor);
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Url url(String shortKey) {
+        return Url.builder()
+                .id(UUID.randomUUID())
+                .createdAt(Instant.parse("2026-10-01T08:00:00Z"))
+                .shortKey(shortKey)
+                .originalUrl("https://example.com/" + shortKey)
+                .isActive(true)
+                .expiresAt(EXPIRES_AT)
+                .build();
+    }
+
+    private static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.entity.Url;
+import com.example.shortener.model.RedirectEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Compares the compact redirect entry format with the legacy JSON values it
+ * replaced: bytes per entry, and decode time through
+ * {@link RedirectEntryRedisSerializer}, which handles both.
+ *
+ * Run from the project root after {@code mvn test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath \
+ *         -Dmdep.includeScope=test -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.shortener.cache.RedirectEntryCodecBenchmark [targetUrlLength] [iterations]
+ * </pre>
+ * A rough single-threaded measurement with a warmup pass, not a JMH harness;
+ * compare numbers taken on the same machine only.
+ */
+public final class RedirectEntryCodecBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private RedirectEntryCodecBenchmark() {}
+
+    public static void main(String[] args) {
+        int targetLength = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        // Same configuration as RedisConfig's JSON serializer
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        RedirectEntryRedisSerializer serializer = new RedirectEntryRedisSerializer(jsonSerializer);
+
+        Instant now = Instant.now();
+        Url url = Url.builder()
+                .id(UUID.randomUUID())
+                .createdAt(now)
+                .shortKey("aB3dE5f")
+                .originalUrl(targetUrl(targetLength))
+                .isActive(true)
+                .expiresAt(now.plus(Duration.ofDays(30)))
+                .build();
+        CachedRedirect cached = new CachedRedirect(RedirectEntry.from(url), now.toEpochMilli(), 3);
+
+        // Legacy values were the whole Url entity written by the JSON serializer
+        byte[] json = jsonSerializer.serialize(url);
+        byte[] compact = serializer.serialize(cached);
+        System.out.printf("Target URL length: %d chars, %d iterations%n", targetLength, iterations);
+        System.out.printf("Bytes per entry:   json %d, compact %d%n", json.length, compact.length);
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            double jsonNanos = decodeNanos(serializer, json, iterations);
+            double compactNanos = decodeNanos(serializer, compact, iterations);
+            if (round > 0) { // round 0 is warmup
+                System.out.printf("Round %d decode:    json %.1f ns/op, compact %.1f ns/op%n",
+                        round, jsonNanos, compactNanos);
+            }
+        }
+    }
+
+    private static double decodeNanos(RedirectEntryRedisSerializer serializer, byte[] value, int iterations) {
+        long sink = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += serializer.deserialize(value).entry().targetUrl().length();
+        }
+        long elapsed = System.nanoTime() - started;
+        if (sink == 42) { // keeps the loop from being optimized away
+            System.out.println();
+        }
+        return (double) elapsed / iterations;
+    }
+
+    private static String targetUrl(int length) {
+        StringBuilder target = new StringBuilder("https://example.com/");
+        while (target.length() < length) {
+            target.append((char) ('a' + target.length() % 26));
+        }
+        return target.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.model.RedirectEntry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedirectEntryCodecTest {
+
+    private static final Instant EXPIRES_AT = Instant.parse("2026-12-31T23:59:59.123Z");
+
+    @Test
+    void roundTripsAnExpiringEntry() {
+        CachedRedirect cached = new CachedRedirect(
+                new RedirectEntry("https://example.com/a?b=c", EXPIRES_AT, true), 1_760_000_000_000L, 42);
+
+        assertThat(RedirectEntryCodec.decode(RedirectEntryCodec.encode(cached))).isEqualTo(cached);
+    }
+
+    @Test
+    void roundTripsAnInactiveEntryWithoutExpiry() {
+        CachedRedirect cached = new CachedRedirect(
+                new RedirectEntry("https://例え.jp/パス", null, false), 0, 0);
+
+        assertThat(RedirectEntryCodec.decode(RedirectEntryCodec.encode(cached))).isEqualTo(cached);
+    }
+
+    @Test
+    void omitsTheExpiryWhenThereIsNone() {
+        RedirectEntry withExpiry = new RedirectEntry("https://example.com", EXPIRES_AT, true);
+        RedirectEntry withoutExpiry = new RedirectEntry("https://example.com", null, true);
+
+        byte[] longer = RedirectEntryCodec.encode(new CachedRedirect(withExpiry, 0, 0));
+        byte[] shorter = RedirectEntryCodec.encode(new CachedRedirect(withoutExpiry, 0, 0));
+
+        assertThat(longer.length - shorter.length).isEqualTo(Long.BYTES);
+    }
+
+    @Test
+    void decodesVersion1EntriesAsStale() {
+        byte[] target = "https://example.com".getBytes(StandardCharsets.UTF_8);
+        byte[] v1 = ByteBuffer.allocate(3 + Long.BYTES + target.length)
+                .put(RedirectEntryCodec.MAGIC).put(RedirectEntryCodec.VERSION_1).put((byte) 0b11)
+                .putLong(EXPIRES_AT.toEpochMilli())
+                .put(target)
+                .array();
+
+        CachedRedirect cached = RedirectEntryCodec.decode(v1);
+
+        assertThat(cached.entry()).isEqualTo(new RedirectEntry("https://example.com", EXPIRES_AT, true));
+        assertThat(cached.loadMillis()).isZero();
+        assertThat(cached.isStale(System.currentTimeMillis())).isTrue();
+    }
+
+    @Test
+    void tellsCompactValuesApartFromJson() {
+        byte[] compact = RedirectEntryCodec.encode(
+                new CachedRedirect(new RedirectEntry("https://example.com", null, true), 0, 0));
+
+        assertThat(RedirectEntryCodec.isCompact(compact)).isTrue();
+        assertThat(RedirectEntryCodec.isCompact("{\"originalUrl\":\"https://example.com\"}".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(RedirectEntryCodec.isCompact(new byte[]{RedirectEntryCodec.MAGIC})).isFalse();
+        assertThat(RedirectEntryCodec.isCompact(null)).isFalse();
+    }
+
+    @Test
+    void rejectsUnknownInput() {
+        assertThatThrownBy(() -> RedirectEntryCodec.decode("{}".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RedirectEntryCodec.decode(new byte[]{RedirectEntryCodec.MAGIC, 9, 0}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version 9");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.shortener.cache;
+
+import com.example.shortener.entity.Url;
+import com.example.shortener.model.RedirectEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RedirectEntryRedisSerializerTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2026-10-01T08:00:00Z");
+    private static final Instant EXPIRES_AT = Instant.parse("2026-12-31T23:59:59Z");
+
+    // Configured like RedisConfig's JSON serializer, which wrote the legacy url:* values
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = jsonSerializer();
+    private final RedirectEntryRedisSerializer serializer = new RedirectEntryRedisSerializer(jsonSerializer);
+
+    @Test
+    void roundTripsCompactEntries() {
+        CachedRedirect cached = new CachedRedirect(
+                new RedirectEntry("https://example.com", EXPIRES_AT, true), 1_760_000_000_000L, 15);
+
+        byte[] bytes = serializer.serialize(cached);
+
+        assertThat(RedirectEntryCodec.isCompact(bytes)).isTrue();
+        assertThat(serializer.deserialize(bytes)).isEqualTo(cached);
+    }
+
+    @Test
+    void readsLegacyJsonEntriesAsStale() {
+        byte[] legacy = jsonSerializer.serialize(url(null));
+
+        CachedRedirect cached = serializer.deserialize(legacy);
+
+        assertThat(cached.entry()).isEqualTo(new RedirectEntry("https://example.com/legacy", EXPIRES_AT, true));
+        assertThat(cached.isStale(System.currentTimeMillis())).isTrue();
+    }
+
+    @Test
+    void readsSoftDeletedLegacyEntriesAsInactive() {
+        byte[] legacy = jsonSerializer.serialize(url(CREATED_AT.plusSeconds(60)));
+
+        assertThat(serializer.deserialize(legacy).entry().active()).isFalse();
+    }
+
+    @Test
+    void mapsMissingValuesToNull() {
+        assertThat(serializer.serialize(null)).isNull();
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    void wrapsUndecodableCompactValues() {
+        byte[] unknownVersion = {RedirectEntryCodec.MAGIC, 9, 0};
+
+        assertThatThrownBy(() -> serializer.deserialize(unknownVersion)).isInstanceOf(SerializationException.class);
+    }
+
+    private static Url url(Instant deletedAt) {
+        return Url.builder()
+                .id(UUID.randomUUID())
+                .createdAt(CREATED_AT)
+                .shortKey("legacy1")
+                .originalUrl("https://example.com/legacy")
+                .isActive(true)
+                .expiresAt(EXPIRES_AT)
+                .deletedAt(deletedAt)
+                .build();
+    }
+
+    private static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+}
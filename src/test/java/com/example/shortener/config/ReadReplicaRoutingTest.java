@@ -0,0 +1,143 @@
+package com.example.shortener.config;
+
+import com.example.shortener.properties.AppProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReplicaRoutingTest {
+
+    private final AppProperties appProperties = new AppProperties();
+    /** The pool each mocked connection belongs to. */
+    private final Map<Connection, HikariDataSource> pools = new HashMap<>();
+    private final ReadReplicaRouting routing = new ReadReplicaRouting(appProperties);
+    private final HikariDataSource primary = pool();
+    private final List<HikariDataSource> replicas = new ArrayList<>();
+
+    @Test
+    void sendsReadsOutsideTheReplicaScopeToThePrimary() {
+        withReplicas(2);
+
+        assertThat(connectionsOf(dataSource(), 3)).containsOnly(primary);
+    }
+
+    @Test
+    void roundRobinsReplicaScopedReadsOverTheReplicas() {
+        withReplicas(2);
+        DataSourceConfig.RoutingDataSource dataSource = dataSource();
+
+        List<HikariDataSource> used = routing.onReplica(() -> connectionsOf(dataSource, 4));
+
+        assertThat(used).containsExactly(replicas.get(0), replicas.get(1), replicas.get(0), replicas.get(1));
+        assertThat(connectionsOf(dataSource, 1)).as("the scope ends with the call").containsOnly(primary);
+    }
+
+    @Test
+    void keepsNestedReadsOnTheReplicaUntilTheOuterScopeEnds() {
+        withReplicas(1);
+        DataSourceConfig.RoutingDataSource dataSource = dataSource();
+
+        List<HikariDataSource> used = routing.onReplica(() -> {
+            routing.onReplica(() -> null);
+            return connectionsOf(dataSource, 1);
+        });
+
+        assertThat(used).containsOnly(replicas.get(0));
+    }
+
+    @Test
+    void usesThePrimaryEvenInScopeWithoutReplicas() {
+        DataSourceConfig.RoutingDataSource dataSource = dataSource();
+
+        List<HikariDataSource> used = routing.onReplica(() -> connectionsOf(dataSource, 1));
+
+        assertThat(used).containsOnly(primary);
+        assertThat(ReadReplicaRouting.inReplicaScope()).isFalse();
+    }
+
+    @Test
+    void remembersRecentWritesOnlyWithReplicasConfigured() {
+        routing.init();
+        routing.recordWrite("before");
+        withReplicas(1);
+        routing.recordWrite("after");
+
+        assertThat(routing.isRecentlyWritten("before")).isFalse();
+        assertThat(routing.isRecentlyWritten("after")).isTrue();
+        assertThat(routing.isRecentlyWritten("other")).isFalse();
+    }
+
+    @Test
+    void closesOnlyTheReplicaPools() {
+        withReplicas(2);
+
+        dataSource().destroy();
+
+        replicas.forEach(replica -> verify(replica).close());
+        verify(primary, never()).close();
+    }
+
+    private void withReplicas(int count) {
+        for (int i = 0; i < count; i++) {
+            appProperties.getReadReplicas().getUrls().add("jdbc:postgresql://replica-" + i + "/shortener");
+            replicas.add(pool());
+        }
+    }
+
+    /**
+     * Wires the routing data source the way {@link DataSourceConfig} does, over mocked pools.
+     */
+    private DataSourceConfig.RoutingDataSource dataSource() {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put("primary", primary);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            keys.add("replica-" + i);
+            targets.put("replica-" + i, replicas.get(i));
+        }
+        DataSourceConfig.RoutingDataSource dataSource = new DataSourceConfig.RoutingDataSource(keys, replicas);
+        dataSource.setTargetDataSources(targets);
+        dataSource.setDefaultTargetDataSource(primary);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    /**
+     * @return the pool each of {@code count} connections came from
+     */
+    private List<HikariDataSource> connectionsOf(DataSourceConfig.RoutingDataSource dataSource, int count) {
+        List<HikariDataSource> used = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                used.add(pools.get(dataSource.getConnection()));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return used;
+    }
+
+    private HikariDataSource pool() {
+        HikariDataSource pool = mock(HikariDataSource.class);
+        Connection connection = mock(Connection.class);
+        try {
+            when(pool.getConnection()).thenReturn(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        pools.put(connection, pool);
+        return pool;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.shortener.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Redirect load test against a running instance: throughput and latency
+ * percentiles of {@code GET /{key}}, for comparing platform and virtual
+ * request threads.
+ *
+ * Start the application once with {@code VIRTUAL_THREADS=false} and once with
+ * {@code VIRTUAL_THREADS=true} (same database, Redis and pool sizes), then run
+ * from the project root after {@code mvn test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath \
+ *         -Dmdep.includeScope=test -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.shortener.controller.RedirectLoadBenchmark [baseUrl] [keys] [concurrency] [seconds]
+ * </pre>
+ * Keys are created through {@code POST /api/shorten/batch}, with the token from
+ * the {@code BULK_API_TOKEN} environment variable. The redirect path only blocks
+ * on I/O on local cache misses, so to compare the thread modes under blocking
+ * load also start the application with {@code app.local-cache.enabled=false}
+ * and {@code app.heavy-hitters.enabled=false}, and lower the log level of
+ * {@code com.example.shortener} to WARN.
+ *
+ * Each client thread sends its requests one after another (closed loop), so
+ * the reported latencies include queueing in the server. Compare numbers taken
+ * on the same machine only.
+ */
+public final class RedirectLoadBenchmark {
+
+    private static final int CREATE_CHUNK = 1000;
+    private static final int WARMUP_SECONDS = 10;
+
+    private RedirectLoadBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int keyCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+
+        HttpClient client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        String bulkToken = System.getenv().getOrDefault("BULK_API_TOKEN", "");
+        List<String> keys = createKeys(client, baseUrl, bulkToken, keyCount);
+        System.out.printf("Created %d keys, %d clients, %d s after %d s warmup%n",
+                keys.size(), concurrency, seconds, WARMUP_SECONDS);
+
+        run(client, baseUrl, keys, concurrency, WARMUP_SECONDS);
+        Stats stats = run(client, baseUrl, keys, concurrency, seconds);
+
+        System.out.printf("Requests:   %d (%d errors)%n", stats.requests(), stats.errors());
+        System.out.printf("Throughput: %.0f req/s%n", stats.requests() / (double) seconds);
+        System.out.printf("Latency:    p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                stats.percentileMillis(0.50), stats.percentileMillis(0.99),
+                stats.percentileMillis(0.999), stats.percentileMillis(1.0));
+    }
+
+    private static List<String> createKeys(HttpClient client, String baseUrl, String bulkToken, int count)
+            throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> keys = new ArrayList<>(count);
+        while (keys.size() < count) {
+            int size = Math.min(CREATE_CHUNK, count - keys.size());
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                body.append("{\"url\":\"https://example.com/load/")
+                        .append(keys.size() + i).append("\"}\n");
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/shorten/batch"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .header("X-Api-Token", bulkToken)
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Bulk shorten failed: " + response.statusCode() + " " + response.body());
+            }
+            int before = keys.size();
+            for (JsonNode result : objectMapper.readTree(response.body()).path("results")) {
+                if (result.path("created").asBoolean()) {
+                    keys.add(result.path("shortKey").asText());
+                }
+            }
+            if (keys.size() == before) {
+                throw new IllegalStateException("Bulk shorten created no keys: " + response.body());
+            }
+        }
+        return keys;
+    }
+
+    private static Stats run(HttpClient client, String baseUrl, List<String> keys,
+                             int concurrency, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<Stats>> clients = new ArrayList<>(concurrency);
+        // Virtual client threads, so the client is never the side that runs out of threads
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> runClient(client, baseUrl, keys, deadline)));
+            }
+        }
+        List<Stats> results = new ArrayList<>(concurrency);
+        for (Future<Stats> result : clients) {
+            results.add(result.get());
+        }
+        return Stats.merge(results);
+    }
+
+    private static Stats runClient(HttpClient client, String baseUrl, List<String> keys, long deadline) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            String key = keys.get(random.nextInt(keys.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + key)).GET().build();
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 302) {
+                    errors++;
+                }
+            } catch (Exception e) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - started;
+        }
+        return new Stats(Arrays.copyOf(latencies, count), errors);
+    }
+
+    private record Stats(long[] latencies, long errors) {
+
+        /** Combines per-client results, with latencies sorted for {@link #percentileMillis}. */
+        static Stats merge(List<Stats> results) {
+            long[] merged = new long[results.stream().mapToInt(stats -> stats.latencies.length).sum()];
+            long errors = 0;
+            int offset = 0;
+            for (Stats stats : results) {
+                System.arraycopy(stats.latencies, 0, merged, offset, stats.latencies.length);
+                offset += stats.latencies.length;
+                errors += stats.errors;
+            }
+            Arrays.sort(merged);
+            return new Stats(merged, errors);
+        }
+
+        long requests() {
+            return latencies.length;
+        }
+
+        double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
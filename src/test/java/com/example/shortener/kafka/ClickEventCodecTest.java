@@ -0,0 +1,73 @@
+package com.example.shortener.kafka;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickEventCodecTest {
+
+    private static final long TIMESTAMP = 1_760_700_000_123L;
+
+    @Test
+    void roundTripsAnEvent() {
+        ClickEvent event = new ClickEvent("aB3dE7x", "203.0.113.7",
+                "Mozilla/5.0 (X11; Linux x86_64)", "https://example.com/page?q=1", TIMESTAMP);
+
+        String payload = ClickEventCodec.encode(event);
+
+        assertThat(payload).isEqualTo("1\t" + TIMESTAMP
+                + "\taB3dE7x\t203.0.113.7\tMozilla/5.0 (X11; Linux x86_64)\thttps://example.com/page?q=1");
+        assertThat(ClickEventCodec.decode(payload)).isEqualTo(event);
+    }
+
+    @Test
+    void encodesMissingFieldsAsEmpty() {
+        ClickEvent event = new ClickEvent("aB3dE7x", null, null, null, TIMESTAMP);
+
+        assertThat(ClickEventCodec.decode(ClickEventCodec.encode(event)))
+                .isEqualTo(new ClickEvent("aB3dE7x", "", "", "", TIMESTAMP));
+    }
+
+    @Test
+    void replacesSeparatorsInsideFields() {
+        ClickEvent event = new ClickEvent("aB3dE7x", "203.0.113.7", "evil\tagent\r\nX-Injected: 1", "ref\terer", TIMESTAMP);
+
+        ClickEvent decoded = ClickEventCodec.decode(ClickEventCodec.encode(event));
+
+        assertThat(decoded).isEqualTo(new ClickEvent("aB3dE7x", "203.0.113.7", "evil agent  X-Injected: 1", "ref erer", TIMESTAMP));
+    }
+
+    @Test
+    void decodesLegacyJsonPayloads() {
+        String legacy = """
+                {"key":"aB3dE7x","ip":"203.0.113.7","ua":"curl/8.4.0","referer":"https://example.com","ts":"2025-10-17T11:20:00.123Z"}
+                """;
+
+        assertThat(ClickEventCodec.decode(legacy)).isEqualTo(
+                new ClickEvent("aB3dE7x", "203.0.113.7", "curl/8.4.0", "https://example.com", 1_760_700_000_123L));
+    }
+
+    @Test
+    void defaultsMissingLegacyFields() {
+        assertThat(ClickEventCodec.decode("{\"key\":\"aB3dE7x\"}"))
+                .isEqualTo(new ClickEvent("aB3dE7x", "", "", "", 0L));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {
+            "1\t123\taB3dE7x\tip\tua",
+            "2\t123\taB3dE7x\tip\tua\treferer",
+            "10\t123\taB3dE7x\tip\tua\treferer",
+            "\t123\taB3dE7x\tip\tua\treferer",
+            "1\tnot-a-number\taB3dE7x\tip\tua\treferer",
+            "{\"key\":",
+            "{\"key\":\"aB3dE7x\",\"ts\":\"yesterday\"}"
+    })
+    void rejectsMalformedPayloads(String payload) {
+        assertThat(ClickEventCodec.decode(payload)).isNull();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.shortener.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the two ways of adding a flush's click counts to {@code urls}:
+ * {@link ClickCountRepository}'s one unnest-joined UPDATE per chunk, and the
+ * JDBC batch of single-row UPDATEs it replaced. Each flush is written in
+ * chunks of the flusher's size, one transaction per chunk, on one thread.
+ *
+ * Needs a PostgreSQL database migrated by Flyway (start the application
+ * against it once). Run from the project root after {@code mvn test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath \
+ *         -Dmdep.includeScope=test -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.shortener.repository.ClickCountMergeBenchmark \
+ *     [jdbcUrl] [user] [password] [keysPerFlush,...] [chunkSize] [rounds]
+ * </pre>
+ * Defaults: the local {@code url_shortener} database as postgres/postgres,
+ * 10000 and 100000 keys, chunks of 500, 5 rounds. The first run inserts
+ * {@code bench-*} rows dated two hours back (outside the insert trigger's
+ * one-hour abuse window, which would otherwise rescan them per row) and
+ * reuses them afterwards; remove them with
+ * {@code DELETE FROM urls WHERE short_key LIKE 'bench-%'}.
+ *
+ * A rough measurement: round 1 is warmup and not reported, and the two paths
+ * alternate so both see the same cache state. Compare numbers taken on the
+ * same machine only.
+ */
+public final class ClickCountMergeBenchmark {
+
+    private static final String KEY_PREFIX = "bench-";
+
+    private static final String SEED_SQL = """
+            INSERT INTO urls (short_key, original_url, created_at)
+            SELECT k, 'https://example.com/' || k, now()::timestamp - interval '2 hours'
+            FROM (SELECT ? || lpad(g::text, 7, '0') AS k FROM generate_series(1, ?) g) keys
+            WHERE NOT EXISTS (SELECT 1 FROM short_key_directory d WHERE d.short_key = keys.k)
+            """;
+
+    // The statement ClickCountRepository replaced, sent as one JDBC batch per chunk
+    private static final String SINGLE_ROW_SQL = """
+            UPDATE urls SET click_count = click_count + ?
+            WHERE short_key = ?
+              AND created_at = (SELECT created_at FROM short_key_directory WHERE short_key = ?)
+            """;
+
+    private ClickCountMergeBenchmark() {}
+
+    public static void main(String[] args) {
+        String jdbcUrl = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/url_shortener";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        int[] flushSizes = args.length > 3
+                ? Arrays.stream(args[3].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{10_000, 100_000};
+        int chunkSize = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+        int rounds = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+
+        // One reused connection, so neither path pays for connecting per chunk
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(jdbcUrl, user, password, true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        ClickCountRepository repository = new ClickCountRepository(jdbcTemplate);
+
+        int maxKeys = Arrays.stream(flushSizes).max().orElse(0);
+        jdbcTemplate.execute("SELECT create_month_partition((now() - interval '2 hours')::date)");
+        int seeded = jdbcTemplate.update(SEED_SQL, KEY_PREFIX, maxKeys);
+        System.out.printf("Seeded %d new rows (%d bench keys needed), chunks of %d%n", seeded, maxKeys, chunkSize);
+
+        for (int keys : flushSizes) {
+            List<List<Map.Entry<String, Long>>> chunks = chunks(keys, chunkSize);
+            for (int round = 1; round <= rounds; round++) {
+                long unnestMillis = timeMillis(() -> chunks.forEach(chunk ->
+                        tx.executeWithoutResult(status -> repository.addClicks(chunk, false))));
+                long batchMillis = timeMillis(() -> chunks.forEach(chunk ->
+                        tx.executeWithoutResult(status -> singleRowBatch(jdbcTemplate, chunk))));
+                if (round > 1) { // round 1 is warmup
+                    System.out.printf("%,7d keys, round %d: unnest %,6d ms (%,.0f keys/s), "
+                                    + "jdbc batch %,6d ms (%,.0f keys/s)%n",
+                            keys, round - 1, unnestMillis, keys * 1000.0 / Math.max(1, unnestMillis),
+                            batchMillis, keys * 1000.0 / Math.max(1, batchMillis));
+                }
+            }
+        }
+        dataSource.destroy();
+    }
+
+    private static void singleRowBatch(JdbcTemplate jdbcTemplate, List<Map.Entry<String, Long>> chunk) {
+        List<Object[]> args = new ArrayList<>(chunk.size());
+        for (Map.Entry<String, Long> count : chunk) {
+            args.add(new Object[]{count.getValue(), count.getKey(), count.getKey()});
+        }
+        jdbcTemplate.batchUpdate(SINGLE_ROW_SQL, args);
+    }
+
+    private static List<List<Map.Entry<String, Long>>> chunks(int keys, int chunkSize) {
+        List<List<Map.Entry<String, Long>>> chunks = new ArrayList<>();
+        List<Map.Entry<String, Long>> chunk = new ArrayList<>(chunkSize);
+        for (int i = 1; i <= keys; i++) {
+            chunk.add(Map.entry(KEY_PREFIX + String.format("%07d", i), 1L));
+            if (chunk.size() == chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static long timeMillis(Runnable task) {
+        long started = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+}
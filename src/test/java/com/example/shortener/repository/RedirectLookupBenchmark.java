@@ -0,0 +1,156 @@
+package com.example.shortener.repository;
+
+import com.example.shortener.entity.Url;
+import com.example.shortener.model.RedirectEntry;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Compares the redirect cache-miss lookup through {@link RedirectLookupRepository}
+ * with the JPA entity load it replaced: time and heap allocation per lookup,
+ * both going to the single partition of the key's creation month.
+ *
+ * The entity path runs the JPQL of {@code UrlRepository.findActiveByShortKeyInRange}
+ * the way a Spring Data query method without open-in-view does: a fresh
+ * persistence context and a transaction per lookup, then
+ * {@link RedirectEntry#from}.
+ *
+ * Needs a PostgreSQL database migrated by Flyway and holding some URLs (for
+ * example the rows {@link ClickCountMergeBenchmark} seeds). Run from the
+ * project root after {@code mvn test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath \
+ *         -Dmdep.includeScope=test -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.shortener.repository.RedirectLookupBenchmark \
+ *     [jdbcUrl] [user] [password] [sampleKeys] [iterations]
+ * </pre>
+ * A rough single-threaded measurement: round 0 is warmup and the two paths
+ * alternate. Compare numbers taken on the same machine only.
+ */
+public final class RedirectLookupBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static final String SAMPLE_SQL =
+            "SELECT short_key, created_at FROM urls WHERE deleted_at IS NULL LIMIT ?";
+
+    private static final String ENTITY_JPQL = """
+            SELECT u FROM Url u
+            WHERE u.shortKey = :shortKey
+              AND u.deletedAt IS NULL
+              AND u.createdAt >= :from
+              AND u.createdAt < :to
+            """;
+
+    private record Sample(String shortKey, Instant from, Instant to) {}
+
+    private RedirectLookupBenchmark() {}
+
+    public static void main(String[] args) {
+        String jdbcUrl = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/url_shortener";
+        String user = args.length > 1 ? args[1] : "postgres";
+        String password = args.length > 2 ? args[2] : "postgres";
+        int sampleKeys = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+        int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername(user);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(2);
+
+        // Same time zone handling as application.yml
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Url.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.jdbc.time_zone", "UTC"));
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        RedirectLookupRepository repository = new RedirectLookupRepository(jdbcTemplate);
+        List<Sample> samples = jdbcTemplate.query(SAMPLE_SQL, (rs, i) -> {
+            YearMonth month = YearMonth.from(rs.getObject("created_at", LocalDateTime.class));
+            return new Sample(rs.getString("short_key"),
+                    month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant(),
+                    month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        }, sampleKeys);
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("No URLs to look up; seed some rows first");
+        }
+        System.out.printf("%d sample keys, %d lookups per round%n", samples.size(), iterations);
+
+        Function<Sample, Optional<RedirectEntry>> projection =
+                sample -> repository.findInRange(sample.shortKey(), sample.from(), sample.to());
+        Function<Sample, Optional<RedirectEntry>> entity = sample -> findEntity(entityManagerFactory, sample);
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            double[] projectionCost = measure(projection, samples, iterations);
+            double[] entityCost = measure(entity, samples, iterations);
+            if (round > 0) { // round 0 is warmup
+                System.out.printf("Round %d: projection %.1f us/op %,.0f B/op, entity %.1f us/op %,.0f B/op%n",
+                        round, projectionCost[0], projectionCost[1], entityCost[0], entityCost[1]);
+            }
+        }
+
+        entityManagerFactory.close();
+        dataSource.close();
+    }
+
+    private static Optional<RedirectEntry> findEntity(EntityManagerFactory entityManagerFactory, Sample sample) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            Optional<RedirectEntry> entry = entityManager.createQuery(ENTITY_JPQL, Url.class)
+                    .setParameter("shortKey", sample.shortKey())
+                    .setParameter("from", sample.from())
+                    .setParameter("to", sample.to())
+                    .getResultStream()
+                    .findFirst()
+                    .map(RedirectEntry::from);
+            entityManager.getTransaction().commit();
+            return entry;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @return microseconds and bytes allocated per lookup on this thread
+     */
+    private static double[] measure(Function<Sample, Optional<RedirectEntry>> lookup,
+                                    List<Sample> samples, int iterations) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long found = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (lookup.apply(samples.get(i % samples.size())).isPresent()) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        if (found < iterations) {
+            System.out.printf("  %d of %d lookups found nothing%n", iterations - found, iterations);
+        }
+        return new double[]{elapsed / 1000.0 / iterations, (double) allocated / iterations};
+    }
+}
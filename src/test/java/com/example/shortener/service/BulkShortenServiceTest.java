@@ -0,0 +1,282 @@
+package com.example.shortener.service;
+
+import com.example.shortener.cache.RedisRedirectCache;
+import com.example.shortener.cache.ShortKeyBloomFilter;
+import com.example.shortener.config.ReadReplicaRouting;
+import com.example.shortener.entity.AbuseEventType;
+import com.example.shortener.model.BulkShortenResponse;
+import com.example.shortener.model.BulkShortenResult;
+import com.example.shortener.model.ShortenUrlRequest;
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.KeyGenerator;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import com.example.shortener.worker.UrlExpiryScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkShortenServiceTest {
+
+    private static final String BASE_URL = "https://sho.rt";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BlacklistService blacklistService = mock(BlacklistService.class);
+    private final AbuseEventService abuseEventService = mock(AbuseEventService.class);
+    private final KeyPoolService keyPoolService = mock(KeyPoolService.class);
+    private final RedisRedirectCache redisRedirectCache = mock(RedisRedirectCache.class);
+    private final ShortKeyBloomFilter shortKeyBloomFilter = mock(ShortKeyBloomFilter.class);
+    private final AppProperties appProperties = new AppProperties();
+
+    /** Keys the database holds; the directory query and the inserts answer from it. */
+    private final Set<String> existing = new HashSet<>();
+    /** Keys a concurrent request saves between the alias check and the insert. */
+    private final Set<String> takenMeanwhile = new HashSet<>();
+    /** Keys the database rejects for a reason other than a duplicate. */
+    private final Set<String> rejected = new HashSet<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final List<String> rowInserts = new ArrayList<>();
+    private int nextKey;
+
+    private BulkShortenService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        appProperties.setShortKeyLength(7);
+
+        when(blacklistService.matcher()).thenReturn(url -> url.contains("malware"));
+        when(keyPoolService.nextKey(any(Instant.class))).thenAnswer(invocation -> "gen" + nextKey++);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(this::findExisting);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(this::insertBatch);
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(this::insertRow);
+
+        service = new BulkShortenService(jdbcTemplate, mock(PlatformTransactionManager.class), blacklistService,
+                abuseEventService, new KeyGenerator(null, null, appProperties), keyPoolService, redisRedirectCache,
+                shortKeyBloomFilter, mock(ShortKeyDirectoryBackfillWorker.class), mock(ReadReplicaRouting.class),
+                mock(UrlExpiryScheduler.class), appProperties);
+    }
+
+    @Test
+    void createsAChunkWithOneBatch() {
+        BulkShortenResponse response = shorten(request("https://example.com/1", null),
+                request("https://example.com/2", "promo-2024"));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(BulkShortenResult::getShortUrl)
+                .containsExactly(BASE_URL + "/gen0", BASE_URL + "/promo-2024");
+        assertThat(batchSizes).containsExactly(2);
+        assertThat(rowInserts).isEmpty();
+        verify(shortKeyBloomFilter).add(Set.of("gen0", "promo-2024"));
+        verify(redisRedirectCache).putAll(argThat(entries -> entries.keySet().equals(Set.of("gen0", "promo-2024"))));
+    }
+
+    @Test
+    void reportsOnlyTheAliasTakenSinceItWasChecked() {
+        takenMeanwhile.add("promo-2024");
+
+        BulkShortenResponse response = shorten(request("https://example.com/1", null),
+                request("https://example.com/2", "promo-2024"),
+                request("https://example.com/3", "sale"));
+
+        assertThat(response.getResults()).extracting(BulkShortenResult::isCreated).containsExactly(true, false, true);
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Alias already in use");
+        assertThat(rowInserts).containsExactly("gen0", "promo-2024", "sale");
+        verify(shortKeyBloomFilter).add(Set.of("gen0", "sale"));
+    }
+
+    @Test
+    void retriesAGeneratedKeyThatIsAlreadyTaken() {
+        existing.add("gen1");
+
+        BulkShortenResponse response = shorten(request("https://example.com/1", null),
+                request("https://example.com/2", null));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(BulkShortenResult::getShortKey).containsExactly("gen0", "gen2");
+        assertThat(rowInserts).containsExactly("gen0", "gen1", "gen2");
+    }
+
+    @Test
+    void givesUpOnAGeneratedKeyAfterThreeAttempts() {
+        existing.addAll(List.of("gen0", "gen1", "gen2"));
+
+        BulkShortenResponse response = shorten(request("https://example.com/1", null));
+
+        assertThat(response.getResults()).extracting(BulkShortenResult::getError).containsExactly("URL could not be saved");
+        assertThat(rowInserts).containsExactly("gen0", "gen1", "gen2");
+        verify(shortKeyBloomFilter, never()).add(anyCollection());
+    }
+
+    @Test
+    void doesNotRetryARowRejectedForAnotherReason() {
+        rejected.add("gen0");
+
+        BulkShortenResponse response = shorten(request("https://example.com/1", null),
+                request("https://example.com/2", null));
+
+        assertThat(response.getResults()).extracting(BulkShortenResult::getError)
+                .containsExactly("URL could not be saved", null);
+        assertThat(rowInserts).containsExactly("gen0", "gen1");
+        verify(keyPoolService, times(2)).nextKey(any(Instant.class));
+    }
+
+    @Test
+    void rejectsInvalidItemsWithoutTouchingTheDatabaseForThem() {
+        existing.add("in-use");
+
+        BulkShortenResponse response = shorten(request("", null),
+                request("https://malware.example.com", null),
+                request("https://example.com/1", "aB3dE7x"),
+                request("https://example.com/2", "twice"),
+                request("https://example.com/3", "twice"),
+                request("https://example.com/4", "in-use"),
+                request("https://example.com/5", null));
+
+        assertThat(response.getResults()).extracting(BulkShortenResult::getError).containsExactly(
+                "Original URL cannot be empty",
+                "URL is blacklisted and cannot be shortened",
+                "Aliases of exactly 7 letters/digits are reserved for generated keys",
+                null,
+                "Alias appears more than once in the batch",
+                "Alias already in use",
+                null);
+        assertThat(response.getFailed()).isEqualTo(5);
+        assertThat(batchSizes).containsExactly(2);
+        verify(abuseEventService).recordEvents(argThat(events -> events.size() == 1
+                && events.get(0).getEventType() == AbuseEventType.BLACKLIST_VIOLATION));
+    }
+
+    @Test
+    void keepsCreatedItemsWhenCachingFails() {
+        doThrow(new IllegalStateException("Redis is down")).when(redisRedirectCache).putAll(anyMap());
+
+        BulkShortenResponse response = shorten(request("https://example.com/1", null));
+
+        assertThat(response.getCreated()).isEqualTo(1);
+    }
+
+    @Test
+    void writesEachChunkOnItsOwnAndStopsAtTheItemLimit() {
+        appProperties.getBulk().setChunkSize(2);
+        appProperties.getBulk().setMaxItems(3);
+
+        BulkShortenResponse response = shorten(request("https://example.com/1", null),
+                request("https://example.com/2", null),
+                request("https://example.com/3", null),
+                request("https://example.com/4", null));
+
+        assertThat(batchSizes).containsExactly(2, 1);
+        assertThat(response.getCreated()).isEqualTo(3);
+        assertThat(response.getResults()).hasSize(4);
+        assertThat(response.getResults().get(3).getError()).isEqualTo("Batch exceeds 3 items; the rest was not processed");
+    }
+
+    private BulkShortenResponse shorten(ShortenUrlRequest... requests) {
+        return service.shorten(List.of(requests).iterator(), "203.0.113.7", "curl/8.0", BASE_URL);
+    }
+
+    private static ShortenUrlRequest request(String url, String customAlias) {
+        ShortenUrlRequest request = new ShortenUrlRequest();
+        request.setUrl(url);
+        request.setCustomAlias(customAlias);
+        return request;
+    }
+
+    /**
+     * Stands in for the batch insert: all or nothing, failing if any key is taken or rejected.
+     */
+    @SuppressWarnings("unchecked")
+    private int[][] insertBatch(InvocationOnMock invocation) throws SQLException {
+        Collection<Object> rows = invocation.getArgument(1);
+        ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+        List<String> keys = new ArrayList<>();
+        for (Object row : rows) {
+            keys.add(boundKey(ps -> setter.setValues(ps, row)));
+        }
+        batchSizes.add(keys.size());
+        existing.addAll(takenMeanwhile);
+        if (keys.stream().anyMatch(key -> existing.contains(key) || rejected.contains(key))) {
+            throw new DuplicateKeyException("duplicate key value violates unique constraint \"short_key_directory_pkey\"");
+        }
+        existing.addAll(keys);
+        return new int[][]{new int[keys.size()]};
+    }
+
+    private int insertRow(InvocationOnMock invocation) throws SQLException {
+        PreparedStatementSetter setter = invocation.getArgument(1);
+        String key = boundKey(setter);
+        rowInserts.add(key);
+        if (rejected.contains(key)) {
+            throw new DataIntegrityViolationException("value too long for type character varying(2048)");
+        }
+        if (!existing.add(key)) {
+            throw new DuplicateKeyException("duplicate key value violates unique constraint \"short_key_directory_pkey\"");
+        }
+        return 1;
+    }
+
+    /**
+     * @return the short key the setter binds as the first parameter
+     */
+    private static String boundKey(PreparedStatementSetter setter) throws SQLException {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        List<String> keys = new ArrayList<>();
+        doAnswer(invocation -> {
+            if ((int) invocation.getArgument(0) == 1) {
+                keys.add(invocation.getArgument(1));
+            }
+            return null;
+        }).when(ps).setString(anyInt(), anyString());
+        setter.setValues(ps);
+        return keys.get(0);
+    }
+
+    private List<String> findExisting(InvocationOnMock invocation) throws SQLException {
+        PreparedStatementCreator creator = invocation.getArgument(0);
+        Connection connection = mock(Connection.class, RETURNS_MOCKS);
+        List<String> keys = new ArrayList<>();
+        when(connection.createArrayOf(anyString(), any())).thenAnswer(i -> {
+            for (Object key : (Object[]) i.getArgument(1)) {
+                keys.add((String) key);
+            }
+            return null;
+        });
+        creator.createPreparedStatement(connection);
+        return keys.stream().filter(existing::contains).toList();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.shortener.service;
+
+import com.example.shortener.properties.ClickProperties;
+import com.example.shortener.repository.ClickCountRepository;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class EmbeddedClickSinkTest {
+
+    private final ClickCountRepository clickCountRepository = mock(ClickCountRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, Long> written = new ConcurrentHashMap<>();
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    private EmbeddedClickSink sink;
+
+    @BeforeEach
+    void setUp() {
+        sink = new EmbeddedClickSink(clickCountRepository, mock(ShortKeyDirectoryBackfillWorker.class),
+                mock(PlatformTransactionManager.class), new ClickProperties(), meterRegistry);
+        sink.init();
+        doAnswer(this::write).when(clickCountRepository).addClicks(anyList(), anyBoolean());
+    }
+
+    @Test
+    void flushWritesTheCountsPerKey() {
+        click("abc", 3);
+        click("xyz", 1);
+
+        sink.flush();
+
+        assertThat(written).containsOnly(Map.entry("abc", 3L), Map.entry("xyz", 1L));
+        assertThat(meterRegistry.counter("clicks.embedded.clicks", "outcome", "flushed").count()).isEqualTo(4);
+    }
+
+    @Test
+    void flushWithoutClicksSkipsTheDatabase() {
+        sink.flush();
+        sink.flush();
+
+        verifyNoInteractions(clickCountRepository);
+    }
+
+    @Test
+    void clicksDuringAFlushGoToTheNextOne() {
+        click("abc", 2);
+        AtomicBoolean clickedDuringFlush = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (clickedDuringFlush.compareAndSet(false, true)) {
+                click("abc", 5);
+            }
+            return write(invocation);
+        }).when(clickCountRepository).addClicks(anyList(), anyBoolean());
+
+        sink.flush();
+        assertThat(written).containsOnly(Map.entry("abc", 2L));
+
+        sink.flush();
+        assertThat(written).containsOnly(Map.entry("abc", 7L));
+    }
+
+    @Test
+    void failedChunksAreRetriedOnTheNextFlush() {
+        click("abc", 4);
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .doAnswer(this::write)
+                .when(clickCountRepository).addClicks(anyList(), anyBoolean());
+
+        sink.flush();
+        assertThat(written).isEmpty();
+        assertThat(meterRegistry.counter("clicks.embedded.clicks", "outcome", "failed").count()).isEqualTo(4);
+
+        click("abc", 1);
+        sink.flush();
+        assertThat(written).containsOnly(Map.entry("abc", 5L));
+    }
+
+    @Test
+    void splitsLargeFlushesIntoChunks() {
+        for (int i = 0; i < 1_200; i++) {
+            click("key" + i, 1);
+        }
+
+        sink.flush();
+
+        assertThat(chunkSizes).containsExactly(500, 500, 200);
+        assertThat(written).hasSize(1_200);
+    }
+
+    @Test
+    void concurrentClicksAreNeitherLostNorDoubleCounted() throws Exception {
+        int threads = 8;
+        int clicksPerThread = 20_000;
+        int keys = 50;
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            publishers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < clicksPerThread; i++) {
+                    sink.publishClick("key" + (i % keys), null, null, null);
+                }
+            }));
+        }
+        Thread flusher = Thread.ofPlatform().start(() -> {
+            while (publishers.stream().anyMatch(Thread::isAlive)) {
+                sink.flush();
+                sleep(10);
+            }
+        });
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        flusher.join();
+
+        sink.stop();
+
+        assertThat(written).hasSize(keys);
+        assertThat(written.values()).allMatch(count -> count == (long) threads * clicksPerThread / keys);
+    }
+
+    /**
+     * Stands in for the database: records each chunk and adds its counts up per key.
+     */
+    private int write(InvocationOnMock invocation) {
+        List<Map.Entry<String, Long>> counts = invocation.getArgument(0);
+        chunkSizes.add(counts.size());
+        counts.forEach(c -> written.merge(c.getKey(), c.getValue(), Long::sum));
+        return counts.size();
+    }
+
+    private void click(String key, int times) {
+        for (int i = 0; i < times; i++) {
+            sink.publishClick(key, "203.0.113.7", "curl/8.4.0", null);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
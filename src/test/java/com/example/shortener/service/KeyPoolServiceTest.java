@@ -0,0 +1,223 @@
+package com.example.shortener.service;
+
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.IdBasedKeyGenerator;
+import com.example.shortener.util.IdBlockAllocator;
+import com.example.shortener.util.KeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeyPoolServiceTest {
+
+    private static final int BLOCK_SIZE = 5;
+    private static final Instant CREATED_AT = Instant.parse("2026-10-17T12:00:00Z");
+
+    private final AppProperties appProperties = new AppProperties();
+    private final IdBlockAllocator idBlockAllocator = mock(IdBlockAllocator.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ThreadPoolTaskExecutor taskExecutor = mock(ThreadPoolTaskExecutor.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nextBlock = new AtomicLong();
+    /** Refills handed to the executor, run when the test says so. */
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    /** Block starts the heartbeat finds still leased to this node; null means all of them. */
+    private Set<Long> stillOwned;
+    /** Keys the short key directory holds. */
+    private final Set<String> directory = new HashSet<>();
+    private final List<Long> released = new ArrayList<>();
+    private final List<Object[]> staleLeases = new ArrayList<>();
+
+    private IdBasedKeyGenerator idBasedKeyGenerator;
+    private KeyGenerator keyGenerator;
+    private KeyPoolService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        appProperties.setShortKeyLength(4);
+        appProperties.getKeyGenerator().setScramble(false);
+        appProperties.getKeyPool().setCapacity(10);
+        appProperties.getKeyPool().setLowWatermark(2);
+
+        idBasedKeyGenerator = new IdBasedKeyGenerator(appProperties);
+        idBasedKeyGenerator.init();
+        keyGenerator = new KeyGenerator(idBlockAllocator, idBasedKeyGenerator, appProperties);
+
+        when(idBlockAllocator.leaseBlock()).thenAnswer(invocation -> {
+            long start = nextBlock.getAndAdd(BLOCK_SIZE);
+            return new IdBlockAllocator.IdBlock(start, start + BLOCK_SIZE);
+        });
+        when(idBlockAllocator.nextId()).thenReturn(1_000L);
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(taskExecutor).execute(any(Runnable.class));
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(this::query);
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenAnswer(this::update);
+        when(jdbcTemplate.query(contains("RETURNING block_start, block_end, leased_at"),
+                any(RowMapper.class), any(Object[].class))).thenAnswer(this::claimStale);
+
+        service = new KeyPoolService(appProperties, keyGenerator, idBlockAllocator, idBasedKeyGenerator,
+                jdbcTemplate, taskExecutor, meterRegistry);
+        service.init();
+    }
+
+    @Test
+    void servesPooledKeysAndJournalsEachBlock() {
+        fill();
+
+        assertThat(service.nextKey(CREATED_AT)).isEqualTo(key(0));
+        assertThat(service.nextKey(CREATED_AT)).isEqualTo(key(1));
+        verify(jdbcTemplate, times(2)).update(contains("INSERT INTO key_pool_leases"), any(Object[].class));
+        assertThat(keysServed("pool")).isEqualTo(2);
+        assertThat(meterRegistry.get("url.keypool.depth").gauge().value()).isEqualTo(8);
+    }
+
+    @Test
+    void generatesKeysInlineWhileThePoolIsEmpty() {
+        assertThat(service.nextKey(CREATED_AT)).isEqualTo(key(1_000));
+
+        assertThat(keysServed("inline")).isEqualTo(1);
+        assertThat(tasks).as("a refill was requested").hasSize(1);
+    }
+
+    @Test
+    void releasesABlockOnceEveryKeyIsHandedOut() {
+        fill();
+        IntStream.range(0, BLOCK_SIZE).forEach(i -> service.nextKey(CREATED_AT));
+
+        service.maintainLeases();
+
+        assertThat(released).containsExactly(0L);
+    }
+
+    @Test
+    void revokesBlocksAnotherNodeHasClaimed() {
+        fill();
+        stillOwned = Set.of(5L);
+
+        service.maintainLeases();
+
+        assertThat(service.nextKey(CREATED_AT)).as("block 0 is skipped").isEqualTo(key(5));
+    }
+
+    @Test
+    void stopsServingBlocksNotConfirmedWithinHalfTheLeaseTimeout() {
+        fill();
+        appProperties.getKeyPool().setLeaseTimeoutSeconds(0);
+
+        assertThat(service.nextKey(CREATED_AT)).isEqualTo(key(1_000));
+        assertThat(keysServed("pool")).isZero();
+        assertThat(keysServed("inline")).isEqualTo(1);
+    }
+
+    @Test
+    void reclaimsOnlyTheUnusedKeysOfStaleLeases() {
+        Instant leasedAt = Instant.now();
+        staleLeases.add(new Object[]{100L, 105L, leasedAt});
+        directory.add(keyGenerator.withPrefix(leasedAt, idBasedKeyGenerator.generate(101)));   // used before its owner died
+
+        service.maintainLeases();
+
+        assertThat(IntStream.range(0, 4).mapToObj(i -> service.nextKey(CREATED_AT)).toList())
+                .containsExactly(key(100), key(102), key(103), key(104));
+        assertThat(meterRegistry.get("url.keypool.recovered").counter().count()).isEqualTo(4);
+    }
+
+    private void fill() {
+        service.fillOnStartup();
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private String key(long id) {
+        return keyGenerator.withPrefix(CREATED_AT, idBasedKeyGenerator.generate(id));
+    }
+
+    private double keysServed(String source) {
+        return meterRegistry.get("url.keypool.keys").tag("source", source).counter().count();
+    }
+
+    /**
+     * Heartbeats and directory probes, told apart by their SQL.
+     */
+    private List<Object> query(InvocationOnMock invocation) throws SQLException {
+        Statement statement = prepare(invocation.getArgument(0));
+        if (statement.sql().contains("SET heartbeat_at")) {
+            return statement.array().stream()
+                    .filter(start -> stillOwned == null || stillOwned.contains((Long) start))
+                    .toList();
+        }
+        return statement.array().stream().filter(directory::contains).toList();
+    }
+
+    private int update(InvocationOnMock invocation) throws SQLException {
+        Statement statement = prepare(invocation.getArgument(0));
+        statement.array().forEach(start -> released.add((Long) start));
+        return statement.array().size();
+    }
+
+    private List<Object> claimStale(InvocationOnMock invocation) throws SQLException {
+        RowMapper<Object> mapper = invocation.getArgument(1);
+        List<Object> claimed = new ArrayList<>();
+        for (Object[] lease : staleLeases) {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("block_start")).thenReturn((Long) lease[0]);
+            when(rs.getLong("block_end")).thenReturn((Long) lease[1]);
+            when(rs.getTimestamp("leased_at")).thenReturn(Timestamp.from((Instant) lease[2]));
+            claimed.add(mapper.mapRow(rs, claimed.size()));
+        }
+        staleLeases.clear();
+        return claimed;
+    }
+
+    private record Statement(String sql, List<Object> array) {
+    }
+
+    /**
+     * Runs a statement creator against a fake connection, capturing its SQL and array parameter.
+     */
+    private static Statement prepare(PreparedStatementCreator creator) throws SQLException {
+        Connection connection = mock(Connection.class);
+        List<String> sql = new ArrayList<>();
+        List<Object> array = new ArrayList<>();
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            sql.add(invocation.getArgument(0));
+            return mock(PreparedStatement.class);
+        });
+        when(connection.createArrayOf(anyString(), any())).thenAnswer(invocation -> {
+            array.addAll(List.of((Object[]) invocation.getArgument(1)));
+            return null;
+        });
+        creator.createPreparedStatement(connection);
+        return new Statement(sql.get(0), array);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.shortener.service;
+
+import com.example.shortener.cache.ShortKeyBloomFilter;
+import com.example.shortener.model.ImportReport;
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.util.KeyGenerator;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import com.example.shortener.worker.UrlExpiryScheduler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UrlImportServiceTest {
+
+    private static final String HEADER = "short_key,original_url,expires_at,created_at\n";
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BlacklistService blacklistService = mock(BlacklistService.class);
+    private final ShortKeyBloomFilter shortKeyBloomFilter = mock(ShortKeyBloomFilter.class);
+    private final AppProperties appProperties = new AppProperties();
+
+    /** Keys the database holds; the directory query answers from it. */
+    private final Set<String> existing = new HashSet<>();
+    /** Keys whose row the database rejects on every COPY. */
+    private final Set<String> rejected = new HashSet<>();
+    private final List<String> copied = new ArrayList<>();
+    private final List<Integer> copySizes = new ArrayList<>();
+    /** Runs before the next COPY fails, standing in for a concurrent writer. */
+    private Runnable failNextCopy;
+
+    private UrlImportService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        appProperties.setShortKeyLength(7);
+        appProperties.getUrlImport().setChunkSize(100);
+
+        CopyManager copyManager = mock(CopyManager.class);
+        PGConnection pgConnection = mock(PGConnection.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString(), any(InputStream.class))).thenAnswer(this::copy);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(this::findExisting);
+        when(blacklistService.matcher()).thenReturn(url -> url.contains("malware"));
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        service = new UrlImportService(dataSource, jdbcTemplate, objectMapper, blacklistService,
+                new KeyGenerator(null, null, appProperties), shortKeyBloomFilter,
+                mock(ShortKeyDirectoryBackfillWorker.class), appProperties, mock(UrlExpiryScheduler.class));
+    }
+
+    @Test
+    void importsKeysShapedLikeGeneratedOnes() throws Exception {
+        ImportReport report = importCsv("""
+                aB3dE7x,https://example.com/legacy,,2024-03-01T10:00:00Z
+                promo-2024,https://example.com/promo,2026-12-31T00:00:00Z,
+                """);
+
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.reserved()).isZero();
+        assertThat(copied).containsExactly("aB3dE7x", "promo-2024");
+        verify(shortKeyBloomFilter).add(List.of("aB3dE7x", "promo-2024"));
+    }
+
+    @Test
+    void skipsKeysShapedLikeGeneratedOnesWhenAskedTo() throws Exception {
+        appProperties.getUrlImport().setRejectGeneratedKeys(true);
+
+        ImportReport report = importCsv("""
+                aB3dE7x,https://example.com/legacy,,
+                promo-2024,https://example.com/promo,,
+                """);
+
+        assertThat(report.reserved()).isEqualTo(1);
+        assertThat(copied).containsExactly("promo-2024");
+    }
+
+    @Test
+    void countsRowsItSkips() throws Exception {
+        existing.add("taken");
+
+        ImportReport report = importCsv("""
+                ,https://example.com/no-key,,
+                no-url,,,
+                bad-date,https://example.com,yesterday,
+                key-that-is-longer-than-twenty,https://example.com,,
+                blocked,https://malware.example.com,,
+                twice,https://example.com/1,,
+                twice,https://example.com/2,,
+                taken,https://example.com/taken,,
+                fine,https://example.com/fine,,
+                """);
+
+        assertThat(report).extracting(ImportReport::read, ImportReport::imported, ImportReport::invalid,
+                        ImportReport::blacklisted, ImportReport::duplicates, ImportReport::failed)
+                .containsExactly(9L, 2L, 4L, 1L, 2L, 0L);
+        assertThat(copied).containsExactly("twice", "fine");
+    }
+
+    @Test
+    void retriesAChunkWithoutKeysTakenInTheMeantime() throws Exception {
+        failNextCopy = () -> existing.add("racy");
+
+        ImportReport report = importCsv("""
+                first,https://example.com/1,,
+                racy,https://example.com/2,,
+                last,https://example.com/3,,
+                """);
+
+        assertThat(copySizes).containsExactly(3, 2);
+        assertThat(copied).containsExactly("first", "last");
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void splitsAChunkUntilTheRowsTheDatabaseRejectsAreIsolated() throws Exception {
+        rejected.addAll(List.of("key07", "key42"));
+        StringBuilder csv = new StringBuilder();
+        IntStream.range(0, 64).forEach(i -> csv.append("key%02d,https://example.com/%d,,\n".formatted(i, i)));
+
+        ImportReport report = importCsv(csv.toString());
+
+        assertThat(report.imported()).isEqualTo(62);
+        assertThat(report.failed()).isEqualTo(2);
+        assertThat(copied).hasSize(62).doesNotHaveDuplicates().doesNotContain("key07", "key42");
+    }
+
+    @Test
+    void writesEachChunkOnItsOwn() throws Exception {
+        appProperties.getUrlImport().setChunkSize(2);
+
+        ImportReport report = importCsv("""
+                one,https://example.com/1,,
+                two,https://example.com/2,,
+                three,https://example.com/3,,
+                """);
+
+        assertThat(report.imported()).isEqualTo(3);
+        assertThat(copySizes).containsExactly(2, 1);
+    }
+
+    private ImportReport importCsv(String rows) throws Exception {
+        byte[] input = (HEADER + rows).getBytes(StandardCharsets.UTF_8);
+        return service.importUrls(new ByteArrayInputStream(input), UrlImportService.Format.CSV);
+    }
+
+    /**
+     * Stands in for COPY: all or nothing, failing if any row is rejected or its key is taken.
+     */
+    private long copy(InvocationOnMock invocation) throws Exception {
+        InputStream data = invocation.getArgument(1);
+        List<String> keys = new String(data.readAllBytes(), StandardCharsets.UTF_8).lines()
+                .map(line -> line.substring(1, line.indexOf('"', 1)))
+                .toList();
+        copySizes.add(keys.size());
+        if (failNextCopy != null) {
+            failNextCopy.run();
+            failNextCopy = null;
+            throw new SQLException("duplicate key value violates unique constraint \"short_key_directory_pkey\"");
+        }
+        if (keys.stream().anyMatch(key -> rejected.contains(key) || existing.contains(key))) {
+            throw new SQLException("COPY rejected a row of the batch");
+        }
+        copied.addAll(keys);
+        return keys.size();
+    }
+
+    private List<String> findExisting(InvocationOnMock invocation) throws SQLException {
+        PreparedStatementCreator creator = invocation.getArgument(0);
+        Connection connection = mock(Connection.class, RETURNS_MOCKS);
+        List<String> keys = new ArrayList<>();
+        when(connection.createArrayOf(anyString(), any())).thenAnswer(i -> {
+            for (Object key : (Object[]) i.getArgument(1)) {
+                keys.add((String) key);
+            }
+            return null;
+        });
+        creator.createPreparedStatement(connection);
+        return keys.stream().filter(existing::contains).toList();
+    }
+}
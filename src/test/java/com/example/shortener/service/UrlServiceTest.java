@@ -0,0 +1,118 @@
+package com.example.shortener.service;
+
+import com.example.shortener.cache.LocalUrlCache;
+import com.example.shortener.cache.RedisRedirectCache;
+import com.example.shortener.cache.ShortKeyBloomFilter;
+import com.example.shortener.cache.metrics.CacheMetrics;
+import com.example.shortener.config.ReadReplicaRouting;
+import com.example.shortener.model.RedirectEntry;
+import com.example.shortener.properties.AppProperties;
+import com.example.shortener.repository.RedirectLookupRepository;
+import com.example.shortener.repository.UrlRepository;
+import com.example.shortener.util.KeyGenerator;
+import com.example.shortener.util.UrlValidator;
+import com.example.shortener.worker.ShortKeyDirectoryBackfillWorker;
+import com.example.shortener.worker.UrlExpiryScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UrlServiceTest {
+
+    private static final RedirectEntry ENTRY = new RedirectEntry("https://example.com/promo", null, true);
+
+    private final RedirectLookupRepository redirectLookupRepository = mock(RedirectLookupRepository.class);
+    private final ReadReplicaRouting readReplicaRouting = mock(ReadReplicaRouting.class);
+    private final AppProperties appProperties = new AppProperties();
+
+    /** Rows the primary and the replica hold, by short key. */
+    private final Map<String, RedirectEntry> primary = new HashMap<>();
+    private final Map<String, RedirectEntry> replica = new HashMap<>();
+    /** Where each directory lookup went. */
+    private final List<String> lookups = new ArrayList<>();
+    private boolean inReplicaScope;
+
+    private UrlService service;
+
+    @BeforeEach
+    void setUp() {
+        ShortKeyBloomFilter shortKeyBloomFilter = mock(ShortKeyBloomFilter.class);
+        when(shortKeyBloomFilter.mightContain(anyString())).thenReturn(true);
+        when(readReplicaRouting.isEnabled()).thenReturn(true);
+        when(readReplicaRouting.onReplica(any())).thenAnswer(invocation -> {
+            inReplicaScope = true;
+            try {
+                return ((Supplier<?>) invocation.getArgument(0)).get();
+            } finally {
+                inReplicaScope = false;
+            }
+        });
+        when(redirectLookupRepository.findViaDirectory(anyString())).thenAnswer(invocation -> {
+            lookups.add(inReplicaScope ? "replica" : "primary");
+            return Optional.ofNullable((inReplicaScope ? replica : primary).get(invocation.<String>getArgument(0)));
+        });
+
+        service = new UrlService(new KeyGenerator(null, null, appProperties), mock(UrlValidator.class),
+                mock(ClickSink.class), mock(UrlRepository.class), redirectLookupRepository,
+                mock(RedisRedirectCache.class), appProperties, mock(LocalUrlCache.class), mock(CacheMetrics.class),
+                shortKeyBloomFilter, mock(ThreadPoolTaskExecutor.class), mock(KeyPoolService.class),
+                mock(ShortKeyDirectoryBackfillWorker.class), readReplicaRouting, mock(UrlExpiryScheduler.class));
+    }
+
+    @Test
+    void readsFromTheReplica() {
+        primary.put("promo-2024", ENTRY);
+        replica.put("promo-2024", ENTRY);
+
+        assertThat(service.getByShortKey("promo-2024")).contains(ENTRY);
+        assertThat(lookups).containsExactly("replica");
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhenTheReplicaLags() {
+        primary.put("promo-2024", ENTRY);
+
+        assertThat(service.getByShortKey("promo-2024")).contains(ENTRY);
+        assertThat(lookups).containsExactly("replica", "primary");
+    }
+
+    @Test
+    void readsKeysThisNodeJustCreatedFromThePrimary() {
+        primary.put("promo-2024", ENTRY);
+        when(readReplicaRouting.isRecentlyWritten("promo-2024")).thenReturn(true);
+
+        assertThat(service.getByShortKey("promo-2024")).contains(ENTRY);
+        assertThat(lookups).containsExactly("primary");
+        verify(readReplicaRouting, never()).onReplica(any());
+    }
+
+    @Test
+    void readsFromThePrimaryWithoutReplicas() {
+        primary.put("promo-2024", ENTRY);
+        when(readReplicaRouting.isEnabled()).thenReturn(false);
+
+        assertThat(service.getByShortKey("promo-2024")).contains(ENTRY);
+        assertThat(lookups).containsExactly("primary");
+    }
+
+    @Test
+    void findsNothingWhereNeitherHasTheKey() {
+        assertThat(service.getByShortKey("missing")).isEmpty();
+        assertThat(lookups).containsExactly("replica", "primary");
+    }
+}
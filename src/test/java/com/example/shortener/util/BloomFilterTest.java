@@ -0,0 +1,49 @@
+package com.example.shortener.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final int INSERTIONS = 100_000;
+
+    @Test
+    void neverReportsAnInsertedValueAsAbsent() {
+        BloomFilter filter = BloomFilter.create(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("key-" + i);
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertThat(filter.mightContain("key-" + i)).as("key-%d", i).isTrue();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.01, 0.001})
+    void keepsFalsePositivesNearTheConfiguredRate(double falsePositiveRate) {
+        BloomFilter filter = BloomFilter.create(INSERTIONS, falsePositiveRate);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put("key-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / INSERTIONS).isLessThan(falsePositiveRate * 1.5);
+    }
+
+    @Test
+    void growsWithALowerFalsePositiveRate() {
+        long loose = BloomFilter.create(INSERTIONS, 0.01).sizeInBytes();
+        long strict = BloomFilter.create(INSERTIONS, 0.001).sizeInBytes();
+
+        assertThat(strict).isGreaterThan(loose);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.shortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTest {
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 8192;
+    private static final int EVENTS = 200_000;
+
+    @Test
+    void staysWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        Map<String, Long> actual = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < EVENTS; i++) {
+            // Skewed like real traffic: a few hot keys and a long tail
+            String key = "key-" + Math.abs((int) (random.nextGaussian() * 1000));
+            sketch.increment(key);
+            actual.merge(key, 1L, Long::sum);
+        }
+
+        // Overestimate <= e/w * N, except with probability e^-d per key
+        double bound = Math.E / WIDTH * EVENTS;
+        long overBound = 0;
+        for (Map.Entry<String, Long> entry : actual.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertThat(estimate).as(entry.getKey()).isGreaterThanOrEqualTo(entry.getValue());
+            if (estimate - entry.getValue() > bound) {
+                overBound++;
+            }
+        }
+        assertThat(overBound).isLessThanOrEqualTo((long) (actual.size() * Math.exp(-DEPTH)));
+    }
+
+    @Test
+    void incrementReturnsTheNewEstimate() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+
+        assertThat(sketch.increment("abc")).isEqualTo(1);
+        assertThat(sketch.increment("abc")).isEqualTo(2);
+        assertThat(sketch.estimate("abc")).isEqualTo(2);
+        assertThat(sketch.estimate("never-seen")).isZero();
+    }
+
+    @Test
+    void halveDecaysEveryCounter() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        for (int i = 0; i < 80; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+
+        sketch.halve();
+
+        assertThat(sketch.estimate("hot")).isEqualTo(40);
+        assertThat(sketch.estimate("cold")).isZero();
+    }
+
+    @Test
+    void rejectsADepthWithoutSeeds() {
+        assertThatThrownBy(() -> new CountMinSketch(0, WIDTH)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CountMinSketch(9, WIDTH)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.shortener.util;
+
+import com.example.shortener.properties.AppProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdBasedKeyGeneratorTest {
+
+    /** Length 4 leaves a three-character body: 62^3 ids, small enough to enumerate. */
+    private static final int SHORT_KEY_LENGTH = 4;
+    private static final long KEY_SPACE = 62L * 62 * 62;
+
+    @Test
+    void mapsEveryIdToADistinctFixedLengthBody() {
+        IdBasedKeyGenerator generator = generator(true, "secret");
+
+        Set<String> bodies = new HashSet<>();
+        for (long id = 0; id < KEY_SPACE; id++) {
+            String body = generator.generate(id);
+            assertThat(body).hasSize(SHORT_KEY_LENGTH - 1);
+            bodies.add(body);
+        }
+
+        assertThat(bodies).hasSize((int) KEY_SPACE);
+    }
+
+    @Test
+    void scramblesConsecutiveIds() {
+        IdBasedKeyGenerator scrambled = generator(true, "secret");
+        IdBasedKeyGenerator plain = generator(false, "secret");
+
+        assertThat(plain.generate(0)).isEqualTo("000");
+        assertThat(plain.generate(61)).isEqualTo("00z");
+        assertThat(LongStream.range(0, 10).mapToObj(scrambled::generate).toList())
+                .isNotEqualTo(LongStream.range(0, 10).mapToObj(plain::generate).toList());
+    }
+
+    @Test
+    void dependsOnlyOnTheSecret() {
+        IdBasedKeyGenerator generator = generator(true, "secret");
+        IdBasedKeyGenerator sameSecret = generator(true, "secret");
+        IdBasedKeyGenerator otherSecret = generator(true, "other");
+
+        assertThat(LongStream.range(0, 100).mapToObj(sameSecret::generate).toList())
+                .isEqualTo(LongStream.range(0, 100).mapToObj(generator::generate).toList());
+        assertThat(LongStream.range(0, 100).mapToObj(otherSecret::generate).toList())
+                .isNotEqualTo(LongStream.range(0, 100).mapToObj(generator::generate).toList());
+    }
+
+    @Test
+    void rejectsIdsOutsideTheKeySpace() {
+        IdBasedKeyGenerator generator = generator(true, "secret");
+
+        assertThatThrownBy(() -> generator.generate(KEY_SPACE)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> generator.generate(-1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsKeyLengthsWithoutABody() {
+        AppProperties properties = new AppProperties();
+        properties.setShortKeyLength(1);
+        properties.getKeyGenerator().setSecret("secret");
+
+        assertThatThrownBy(() -> new IdBasedKeyGenerator(properties).init()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"  ", "change-me"})
+    void refusesToScrambleWithoutASecret(String secret) {
+        assertThatThrownBy(() -> generator(true, secret))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("KEY_SECRET");
+    }
+
+    @Test
+    void needsNoSecretWithoutScrambling() {
+        assertThat(generator(false, null).generate(61)).isEqualTo("00z");
+    }
+
+    private static IdBasedKeyGenerator generator(boolean scramble, String secret) {
+        AppProperties properties = new AppProperties();
+        properties.setShortKeyLength(SHORT_KEY_LENGTH);
+        properties.getKeyGenerator().setScramble(scramble);
+        properties.getKeyGenerator().setSecret(secret);
+        IdBasedKeyGenerator generator = new IdBasedKeyGenerator(properties);
+        generator.init();
+        return generator;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.shortener.util;
+
+import com.example.shortener.properties.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeyGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    private final IdBlockAllocator idBlockAllocator = mock(IdBlockAllocator.class);
+    private KeyGenerator keyGenerator;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getKeyGenerator().setScramble(false);
+        IdBasedKeyGenerator idBasedKeyGenerator = new IdBasedKeyGenerator(properties);
+        idBasedKeyGenerator.init();
+        keyGenerator = new KeyGenerator(idBlockAllocator, idBasedKeyGenerator, properties);
+    }
+
+    @Test
+    void prefixesTheIdBasedBodyWithTheCreationMonth() {
+        when(idBlockAllocator.nextId()).thenReturn(62L);
+
+        assertThat(keyGenerator.generate(Instant.parse("2026-01-31T23:59:59Z"))).isEqualTo("2000010");
+    }
+
+    @Test
+    void prefixCountsMonthsSinceTheFirstPartitionAndWrapsAfter62() {
+        assertThat(keyGenerator.withPrefix(Instant.parse("2025-11-01T00:00:00Z"), "body")).isEqualTo("0body");
+        assertThat(keyGenerator.withPrefix(Instant.parse("2026-10-17T00:00:00Z"), "body")).isEqualTo("Bbody");
+        assertThat(keyGenerator.withPrefix(Instant.parse("2030-12-31T23:59:59Z"), "body")).isEqualTo("zbody");
+        assertThat(keyGenerator.withPrefix(Instant.parse("2031-01-01T00:00:00Z"), "body")).isEqualTo("0body");
+    }
+
+    @Test
+    void decodesTheCreationMonthOfEveryKeyInTheCycle() {
+        Instant now = Instant.parse("2030-12-15T00:00:00Z");
+        for (YearMonth month = YearMonth.of(2025, 11); !month.isAfter(YearMonth.of(2030, 12)); month = month.plusMonths(1)) {
+            Instant createdAt = month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+            String key = keyGenerator.withPrefix(createdAt, "abcdef");
+
+            assertThat(keyGenerator.creationMonth(key, now)).as(key).contains(month);
+        }
+    }
+
+    @Test
+    void decodesAnAmbiguousPrefixToTheMostRecentMonth() {
+        String key = keyGenerator.withPrefix(Instant.parse("2025-11-01T00:00:00Z"), "abcdef");
+
+        assertThat(keyGenerator.creationMonth(key, Instant.parse("2031-02-01T00:00:00Z")))
+                .contains(YearMonth.of(2031, 1));
+    }
+
+    @Test
+    void rejectsPrefixesThatWouldDecodeBeforeTheFirstPartition() {
+        // 'z' is 61 months in; in January 2026 that decodes to October 2025
+        assertThat(keyGenerator.creationMonth("zabcdef", Instant.parse("2026-01-15T00:00:00Z"))).isEmpty();
+    }
+
+    @Test
+    void doesNotDecodeCustomAliases() {
+        assertThat(keyGenerator.creationMonth("my-link", NOW)).isEmpty();
+        assertThat(keyGenerator.creationMonth("short", NOW)).isEmpty();
+    }
+
+    @Test
+    void matchesKeysOfTheGeneratedLengthAndAlphabet() {
+        assertThat(keyGenerator.matchesGeneratedFormat("aB3dE7x")).isTrue();
+        assertThat(keyGenerator.matchesGeneratedFormat("0000000")).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "aB3dE7", "aB3dE7xy", "aB3-E7x", "aB3_E7x", "aB3dE7é"})
+    void doesNotMatchOtherKeys(String key) {
+        assertThat(keyGenerator.matchesGeneratedFormat(key)).isFalse();
+    }
+}
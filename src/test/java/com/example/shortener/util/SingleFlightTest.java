@@ -0,0 +1,160 @@
+package com.example.shortener.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runsTheLoaderOnceForConcurrentCallers() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<SingleFlight.Result<String>> leader = executor.submit(() -> singleFlight.execute("abc", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            block(release);
+            return "https://example.com";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<SingleFlight.Result<String>> follower = executor.submit(() -> singleFlight.execute("abc", () -> {
+            loads.incrementAndGet();
+            return "second load";
+        }));
+        awaitParked(follower);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("https://example.com", false));
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("https://example.com", true));
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void loadsAgainOnceTheCallCompleted() {
+        assertThat(singleFlight.execute("abc", () -> "first")).isEqualTo(new SingleFlight.Result<>("first", false));
+        assertThat(singleFlight.execute("abc", () -> "second")).isEqualTo(new SingleFlight.Result<>("second", false));
+    }
+
+    @Test
+    void doesNotCoalesceDifferentKeys() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<SingleFlight.Result<String>> blocked = executor.submit(() -> singleFlight.execute("abc", () -> {
+            loading.countDown();
+            block(release);
+            return "abc";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(singleFlight.execute("xyz", () -> "xyz")).isEqualTo(new SingleFlight.Result<>("xyz", false));
+
+        release.countDown();
+        assertThat(blocked.get(5, TimeUnit.SECONDS).coalesced()).isFalse();
+    }
+
+    @Test
+    void propagatesTheLoaderExceptionToEveryCaller() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database down");
+        Future<SingleFlight.Result<String>> follower = coalescedCallerOfFailingLoad(failure);
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isSameAs(failure);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void propagatesAnErrorInsteadOfLeavingWaitersHanging() throws Exception {
+        StackOverflowError failure = new StackOverflowError();
+        Future<SingleFlight.Result<String>> follower = coalescedCallerOfFailingLoad(failure);
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isSameAs(failure);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    /**
+     * Starts a load that throws {@code failure} once a second caller waits on it,
+     * checks the loading caller sees the same throwable, and returns the waiter.
+     */
+    private Future<SingleFlight.Result<String>> coalescedCallerOfFailingLoad(Throwable failure) throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<SingleFlight.Result<String>> leader = executor.submit(() -> singleFlight.execute("abc", () -> {
+            loading.countDown();
+            block(release);
+            sneakyThrow(failure);
+            return null;
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<SingleFlight.Result<String>> follower = executor.submit(() -> singleFlight.execute("abc", () -> "second load"));
+        awaitParked(follower);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isSameAs(failure);
+        return follower;
+    }
+
+    /**
+     * Waits until the follower is parked on the in-flight call, so it cannot
+     * start a load of its own once the leader is released.
+     */
+    private void awaitParked(Future<?> follower) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!hasParkedWorker()) {
+            assertThat(follower.isDone()).as("follower finished without waiting").isFalse();
+            assertThat(System.nanoTime()).as("follower never waited").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static boolean hasParkedWorker() {
+        // Followers park in CompletableFuture.join() under SingleFlight.await
+        return Thread.getAllStackTraces().entrySet().stream()
+                .filter(entry -> entry.getKey().getState() == Thread.State.WAITING)
+                .anyMatch(entry -> Arrays.stream(entry.getValue())
+                        .anyMatch(frame -> frame.getClassName().equals(SingleFlight.class.getName())
+                                && frame.getMethodName().equals("await")));
+    }
+
+    private static void block(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> void sneakyThrow(Throwable t) throws T {
+        throw (T) t;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.shortener.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    /** Deliberately not on a tick or slot boundary. */
+    private static final long START = 1_760_700_000_123L;
+
+    /**
+     * Offsets reaching every level: slot 0 (under 64 ticks), level 1 (under 64²),
+     * level 2 (under 64³) and the overflow list, including a deadline off the tick grid.
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {1, 999, 1_000, 63_000, 64_000, 65_500, 4_095_000, 4_096_000,
+            262_143_000, 262_144_000, 300_000_000, 1_000_000_000})
+    void firesOnTheFirstAdvanceAtOrAfterTheDeadlineTick(long offset) {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        long deadline = START + offset;
+        assertThat(wheel.add("item", deadline)).isTrue();
+
+        long firedAt = advanceUntilFired(wheel, deadline + 2 * TICK);
+
+        assertThat(firedAt).isGreaterThanOrEqualTo(deadline).isEqualTo(expectedFiring(deadline));
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesManyItemsWithoutLosingAny() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        Map<String, Long> deadlines = Map.of(
+                "slot", START + 5_000,
+                "level 1", START + 70_000,
+                "level 1 too", START + 70_000,
+                "level 2", START + 5_000_000,
+                "level 2 boundary", START + 262_144_000,
+                "overflow", START + 270_000_000,
+                "overflow wrapped", START + 600_000_000);
+        deadlines.forEach(wheel::add);
+        assertThat(wheel.size()).isEqualTo(deadlines.size());
+
+        long end = Collections.max(deadlines.values()) + 2 * TICK;
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = START; now <= end && firedAt.size() < deadlines.size(); now += TICK) {
+            for (String item : wheel.advance(now)) {
+                assertThat(firedAt.put(item, now)).as("%s fired twice", item).isNull();
+            }
+        }
+
+        deadlines.forEach((item, deadline) ->
+                assertThat(firedAt.get(item)).as(item).isEqualTo(expectedFiring(deadline)));
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void jumpingAheadReturnsEverythingThatBecameDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.add("soon", START + 2_000);
+        wheel.add("later", START + 5_000_000);
+        wheel.add("much later", START + 500_000_000);
+
+        assertThat(wheel.advance(START + 5_000_000 + TICK)).containsExactlyInAnyOrder("soon", "later");
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 500_000_000 + TICK)).containsExactly("much later");
+    }
+
+    @Test
+    void rejectsDeadlinesThatHavePassed() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+
+        assertThat(wheel.add("past", START - 60_000)).isFalse();
+        assertThat(wheel.add("start of this tick", START - START % TICK)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void doesNotFireBeforeTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.add("item", START + 10_500);
+
+        assertThat(wheel.advance(START + 10_499)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    /**
+     * The first time on the {@code START + n * TICK} advance grid at or after the
+     * deadline rounded up to a whole tick.
+     */
+    private static long expectedFiring(long deadline) {
+        long dueTick = Math.ceilDiv(deadline, TICK) * TICK;
+        return START + Math.ceilDiv(dueTick - START, TICK) * TICK;
+    }
+
+    /**
+     * Advances one tick at a time and returns the time the single item fired.
+     */
+    private static long advanceUntilFired(TimingWheel<String> wheel, long limit) {
+        for (long now = START; now <= limit; now += TICK) {
+            List<String> due = wheel.advance(now);
+            if (!due.isEmpty()) {
+                return now;
+            }
+        }
+        throw new AssertionError("Item did not fire by " + limit);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.shortener.worker;
+
+import com.example.shortener.properties.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionLifecycleManagerTest {
+
+    /** Long past any retention period. */
+    private static final String OLD = "urls_2025_01";
+    private static final String CLEAR_RECORD = "DELETE FROM partition_removals WHERE partition_name = ?";
+
+    private final JdbcTemplate session = mock(JdbcTemplate.class);
+    private final AppProperties appProperties = new AppProperties();
+    private final PartitionLifecycleManager manager =
+            new PartitionLifecycleManager(mock(JdbcTemplate.class), appProperties, new SimpleMeterRegistry());
+
+    /** Rows of the partition_removals query: name, present, attached, detach pending. */
+    private final List<Object[]> unfinished = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(session.query(contains("FROM partition_removals"), any(RowMapper.class))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object> rows = new ArrayList<>();
+            for (Object[] row : unfinished) {
+                rows.add(mapper.mapRow(resultSet(row), rows.size()));
+            }
+            return rows;
+        });
+        attached();
+        retainsRows(false);
+    }
+
+    @Test
+    void finalizesAnInterruptedDetachAndDropsThePartition() {
+        unfinished.add(new Object[]{OLD, true, true, true});
+
+        maintain();
+
+        InOrder order = inOrder(session);
+        order.verify(session).execute("ALTER TABLE urls DETACH PARTITION \"" + OLD + "\" FINALIZE");
+        order.verify(session).update(contains("DELETE FROM short_key_directory d USING \"" + OLD + "\""));
+        order.verify(session).execute("DROP TABLE \"" + OLD + "\"");
+        order.verify(session).update(CLEAR_RECORD, OLD);
+    }
+
+    @Test
+    void dropsADetachedPartitionLeftBehind() {
+        unfinished.add(new Object[]{OLD, true, false, false});
+
+        maintain();
+
+        verify(session, never()).execute(contains("FINALIZE"));
+        InOrder order = inOrder(session);
+        order.verify(session).execute("DROP TABLE \"" + OLD + "\"");
+        order.verify(session).update(CLEAR_RECORD, OLD);
+    }
+
+    @Test
+    void reattachesADetachedPartitionThatStillHoldsRows() {
+        unfinished.add(new Object[]{OLD, true, false, false});
+        retainsRows(true);
+
+        maintain();
+
+        InOrder order = inOrder(session);
+        order.verify(session).execute(
+                "ALTER TABLE urls ATTACH PARTITION \"" + OLD + "\" FOR VALUES FROM ('2025-01-01') TO ('2025-02-01')");
+        order.verify(session).update(CLEAR_RECORD, OLD);
+        verify(session, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    @Test
+    void clearsRecordsOfRemovalsThatFinishedOrNeverStarted() {
+        unfinished.add(new Object[]{"urls_2025_01", false, false, false});
+        unfinished.add(new Object[]{"urls_2025_02", true, true, false});
+
+        maintain();
+
+        verify(session).update(CLEAR_RECORD, "urls_2025_01");
+        verify(session).update(CLEAR_RECORD, "urls_2025_02");
+        verify(session, never()).execute(anyString());
+    }
+
+    @Test
+    void leavesUnrecordedTablesAlone() {
+        maintain();
+
+        // Only the partitions of the coming months are created; nothing is detached or dropped
+        verify(session, never()).execute(anyString());
+        verify(session, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void recordsAPartitionBeforeDetachingIt() {
+        attached(OLD);
+
+        maintain();
+
+        InOrder order = inOrder(session);
+        order.verify(session).update(contains("INSERT INTO partition_removals"), eq(OLD));
+        order.verify(session).execute("ALTER TABLE urls DETACH PARTITION \"" + OLD + "\" CONCURRENTLY");
+        order.verify(session).execute("DROP TABLE \"" + OLD + "\"");
+        order.verify(session).update(CLEAR_RECORD, OLD);
+    }
+
+    @Test
+    void keepsTheRecordWhenTheDetachFails() {
+        attached(OLD);
+        doThrow(new DataAccessResourceFailureException("canceling statement due to lock timeout"))
+                .when(session).execute(contains("CONCURRENTLY"));
+
+        maintain();
+
+        verify(session).update(contains("INSERT INTO partition_removals"), eq(OLD));
+        verify(session, never()).update(eq(CLEAR_RECORD), any(Object[].class));
+        verify(session, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    @Test
+    void archivesInsteadOfDroppingWhenASchemaIsSet() {
+        appProperties.getPartitions().setArchiveSchema("archive");
+        unfinished.add(new Object[]{OLD, true, false, false});
+
+        maintain();
+
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(session, atLeast(1)).execute(statements.capture());
+        assertThat(statements.getAllValues()).containsExactly(
+                "CREATE SCHEMA IF NOT EXISTS \"archive\"",
+                "ALTER TABLE \"" + OLD + "\" SET SCHEMA \"archive\"");
+        verify(session).update(CLEAR_RECORD, OLD);
+    }
+
+    private void maintain() {
+        manager.maintain(session, appProperties.getPartitions());
+    }
+
+    private void attached(String... partitions) {
+        when(session.queryForList(contains("WHERE i.inhparent = 'urls'::regclass"), eq(String.class)))
+                .thenReturn(List.of(partitions));
+    }
+
+    private void retainsRows(boolean retained) {
+        when(session.queryForObject(startsWith("SELECT EXISTS"), eq(Boolean.class), any())).thenReturn(retained);
+    }
+
+    private static ResultSet resultSet(Object[] row) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("partition_name")).thenReturn((String) row[0]);
+        when(rs.getBoolean("present")).thenReturn((Boolean) row[1]);
+        when(rs.getBoolean("attached")).thenReturn((Boolean) row[2]);
+        when(rs.getBoolean("detach_pending")).thenReturn((Boolean) row[3]);
+        return rs;
+    }
+}
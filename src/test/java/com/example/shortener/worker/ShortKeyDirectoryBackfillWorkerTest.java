@@ -0,0 +1,135 @@
+package com.example.shortener.worker;
+
+import com.example.shortener.properties.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShortKeyDirectoryBackfillWorkerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AppProperties appProperties = new AppProperties();
+    private final ThreadPoolTaskExecutor taskExecutor = mock(ThreadPoolTaskExecutor.class);
+    private final ShortKeyDirectoryBackfillWorker worker =
+            new ShortKeyDirectoryBackfillWorker(jdbcTemplate, appProperties, taskExecutor);
+
+    /** Short keys of each partition, and which of them the trigger already put in the directory. */
+    private final Map<String, List<String>> partitions = new TreeMap<>();
+    private final List<String> inDirectory = new ArrayList<>();
+    private final List<String> cursors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        appProperties.getDirectory().setBackfillBatchSize(2);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(taskExecutor).execute(any(Runnable.class));
+        when(jdbcTemplate.queryForList(contains("short_key_directory_backfill"), eq(String.class)))
+                .thenAnswer(invocation -> List.copyOf(partitions.keySet()));
+        when(jdbcTemplate.queryForMap(contains("INSERT INTO short_key_directory"), anyString(), anyInt()))
+                .thenAnswer(this::copyChunk);
+    }
+
+    @Test
+    void fallsBackUntilTheBackfillCompletes() {
+        assertThat(worker.needsFallbackScan()).isTrue();
+
+        worker.startBackfill();
+
+        assertThat(worker.needsFallbackScan()).isFalse();
+    }
+
+    @Test
+    void copiesEachPartitionInKeyOrderChunksAndRecordsIt() {
+        partitions.put("urls_2025_11", List.of("a1", "b2", "c3", "d4", "e5"));
+        partitions.put("urls_2025_12", List.of("x9"));
+        inDirectory.add("c3");
+
+        worker.startBackfill();
+
+        assertThat(cursors).containsExactly("", "b2", "d4", "e5", "", "x9");
+        assertThat(inDirectory).containsExactlyInAnyOrder("a1", "b2", "c3", "d4", "e5", "x9");
+        verify(jdbcTemplate).update(contains("INSERT INTO short_key_directory_backfill"), eq("urls_2025_11"));
+        verify(jdbcTemplate).update(contains("INSERT INTO short_key_directory_backfill"), eq("urls_2025_12"));
+    }
+
+    @Test
+    void keepsTheFallbackWhenTheBackfillFails() {
+        partitions.put("urls_2025_11", List.of("a1", "b2", "c3"));
+        when(jdbcTemplate.queryForMap(contains("INSERT INTO short_key_directory"), anyString(), anyInt()))
+                .thenAnswer(this::copyChunk)
+                .thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        worker.startBackfill();
+
+        assertThat(worker.needsFallbackScan()).isTrue();
+        verify(jdbcTemplate, never()).update(contains("INSERT INTO short_key_directory_backfill"), any(Object[].class));
+    }
+
+    @Test
+    void neverFallsBackWhenDisabled() {
+        appProperties.getDirectory().setFallbackScanEnabled(false);
+
+        assertThat(worker.needsFallbackScan()).isFalse();
+    }
+
+    @Test
+    void doesNothingWithTheBackfillDisabled() {
+        appProperties.getDirectory().setBackfillEnabled(false);
+
+        worker.startBackfill();
+
+        verify(taskExecutor, never()).execute(any(Runnable.class));
+        assertThat(worker.needsFallbackScan()).isTrue();
+    }
+
+    /**
+     * Stands in for the chunk query: the next batch of keys after the cursor, copied unless present.
+     */
+    private Map<String, Object> copyChunk(InvocationOnMock invocation) {
+        String sql = invocation.getArgument(0);
+        String lastKey = invocation.getArgument(1);
+        int batchSize = invocation.getArgument(2);
+        cursors.add(lastKey);
+        String partition = partitions.keySet().stream()
+                .filter(name -> sql.contains("\"" + name + "\""))
+                .findFirst().orElseThrow();
+        List<String> chunk = partitions.get(partition).stream()
+                .filter(key -> key.compareTo(lastKey) > 0)
+                .limit(batchSize)
+                .toList();
+        long copied = 0;
+        for (String key : chunk) {
+            if (!inDirectory.contains(key)) {
+                inDirectory.add(key);
+                copied++;
+            }
+        }
+        Map<String, Object> result = new TreeMap<>();
+        result.put("scanned", (long) chunk.size());
+        result.put("last_key", chunk.isEmpty() ? null : chunk.get(chunk.size() - 1));
+        result.put("copied", copied);
+        return result;
+    }
+}